@@ -0,0 +1,142 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Job emitting a pair (ciao(word), word) for every word of at least four letters of a file,
+ * or of the words starting in a byte range of it (a split).
+ * A gzip file (.gz) is decompressed while it is read and cannot be split, its job always reads all of it.
+ * Subclasses choose how the key of a word, its ciao, is represented.
+ * A job is just the file and the range, and is serialized as such to run in another JVM.
+ */
+public abstract class ACiaoJob<K> extends AJob<K, String> implements Serializable {
+    protected final String filePath;
+    protected final long start;
+    protected final long end;
+
+    protected ACiaoJob(String filePath, long start, long end) {
+        this.filePath = filePath;
+        this.start = start;
+        this.end = end;
+    }
+
+    /** Returns the function computing the keys of a single execution, it is never shared between threads. */
+    protected abstract Function<String, K> ciao();
+
+    // the compressed size for a gzip file
+    @Override
+    public long inputSize() {
+        try {
+            return Math.max(0, Math.min(this.end, Files.size(Paths.get(this.filePath))) - this.start);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.start == 0 && this.end == Long.MAX_VALUE ? this.filePath : this.filePath + " [" + this.start + ", " + this.end + ")";
+    }
+
+    // the file and the range, the file size and its last modification time
+    @Override
+    public String cacheKey() {
+        try {
+            Path path = Paths.get(this.filePath).toAbsolutePath();
+            return getClass().getName() + " " + path + " " + start + "-" + end + " "
+                    + Files.size(path) + " " + Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // a gzip file is not loaded: its decompressed size is unbounded, it is streamed while computing instead
+    @Override
+    public AJob<K, String> load() {
+        Path path = Paths.get(this.filePath);
+        if (GzipInput.isCompressed(path))
+            return this;
+        try {
+            return new Loaded(WordTokenizer.read(path, this.start, this.end));
+        } catch (IOException e) {
+            System.err.println("Error during execution: " + e.getMessage());
+            System.err.println("File " + this.filePath + " ignored");
+            JobCache.inputSkipped();
+            return new Loaded(ByteBuffer.allocate(0));
+        }
+    }
+
+    @Override
+    public Stream<Pair<K, String>> execute() {
+        List<Pair<K, String>> workingList = new ArrayList<>();
+        execute(workingList::add);
+        return workingList.stream();
+    }
+
+    // only a file that cannot be read is ignored: the failures of the sink go to the scheduler,
+    // which would otherwise output the reductions of a part of the file
+    @Override
+    public void execute(Consumer<? super Pair<K, String>> sink) {
+        Function<String, K> ciao = ciao();
+        Consumer<String> words = word -> sink.accept(new Pair<>(ciao.apply(word), word));
+        Path path = Paths.get(this.filePath);
+        try {
+            // the tokenizer scans the mapped bytes for runs of alphabetic characters (no regex, no decoding)
+            // and ignores all words of less than four characters
+            if (GzipInput.isCompressed(path))
+                WordTokenizer.forEachCompressedWord(path, 4, words);
+            else
+                WordTokenizer.forEachWord(path, this.start, this.end, 4, words);
+        } catch (IOException e) {
+            System.err.println("Error during execution: " + e.getMessage());
+            System.err.println("File " + this.filePath + " ignored");
+            JobCache.inputSkipped();
+        }
+    }
+
+    // the job on the bytes of its words, already read in memory
+    private class Loaded extends AJob<K, String> {
+        private final ByteBuffer words;
+
+        Loaded(ByteBuffer words) {
+            this.words = words;
+        }
+
+        @Override
+        public Stream<Pair<K, String>> execute() {
+            List<Pair<K, String>> workingList = new ArrayList<>();
+            execute(workingList::add);
+            return workingList.stream();
+        }
+
+        @Override
+        public void execute(Consumer<? super Pair<K, String>> sink) {
+            Function<String, K> ciao = ciao();
+            WordTokenizer tokenizer = new WordTokenizer(4, word -> sink.accept(new Pair<>(ciao.apply(word), word)));
+            tokenizer.feed(words.duplicate());
+            tokenizer.finish();
+        }
+
+        @Override
+        public long inputSize() {
+            return words.remaining();
+        }
+
+        @Override
+        public String toString() {
+            return ACiaoJob.this.toString();
+        }
+    }
+}
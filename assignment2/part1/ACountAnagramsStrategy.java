@@ -0,0 +1,225 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Scanner;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Counts the anagram classes of the words in the .txt and .txt.gz files of a directory, writing one line per class
+ * with its key and its number of words. Subclasses choose the job, and then the key type, used for every file.
+ * The classes are written in no particular order, unless the output is sorted by key or limited to the largest classes.
+ * The strategy is Serializable, so that the workers of a Cluster reduce and sort with the same settings.
+ * With a partitioned output every reducer partition writes its own part file, at the same time as the others.
+ */
+public abstract class ACountAnagramsStrategy<K extends Comparable<? super K>> implements ReducingStrategy<K, String, Integer>, Serializable {
+    private final String out_file;
+    // null means the directory is asked on the standard input
+    private final String dir_name;
+    // files larger than this are processed by one job per split of this many bytes
+    private long splitSize = 64L << 20;
+    // only the classes with the most words are written, 0 means all of them
+    private int topK;
+    private boolean sortedByKey;
+    // the directory of the part files, null means a single output file
+    private String partsDir;
+    private boolean joinParts;
+
+    protected ACountAnagramsStrategy(String dir_name, String out_file) {
+        this.dir_name = dir_name;
+        this.out_file = out_file;
+    }
+
+    /** Returns the job for the words starting in the byte range [start, end) of the file. */
+    protected abstract AJob<K, String> newJob(String filePath, long start, long end);
+
+    /**
+     * Sets the size of the splits: a larger file is cut into byte ranges of this size, aligned to word
+     * boundaries by the jobs, and each range becomes its own job. Defaults to 64 MB. Gzip files are never split.
+     */
+    public void setSplitSize(long splitSize) {
+        if (splitSize <= 0)
+            throw new IllegalArgumentException("Expected splitSize > 0");
+        this.splitSize = splitSize;
+    }
+
+    /**
+     * Writes only the k classes with the most words, from the largest, ties broken by key.
+     * They are picked with a heap of k classes while the reductions arrive. 0 writes every class.
+     */
+    public void setTopK(int k) {
+        this.topK = k;
+    }
+
+    /**
+     * Writes the classes sorted by key: every reducer partition is sorted on its own and the partitions
+     * are merged during the output. Ignored when only the top k classes are written.
+     */
+    public void setSortedByKey(boolean sortedByKey) {
+        this.sortedByKey = sortedByKey;
+    }
+
+    /**
+     * Writes the classes of every reducer partition to its own file of the directory, part-00000, part-00001, ...,
+     * so the partitions are written in parallel; when join is true the parts are then also joined into out_file,
+     * merged by key when sorted. Ignored when only the top k classes are written, and the output of
+     * openOutput is not used for the parts.
+     */
+    public void setPartitionedOutput(String partsDir, boolean join) {
+        this.partsDir = partsDir;
+        this.joinParts = join;
+    }
+
+    @Override
+    public Stream<AJob<K, String>> emit() {
+        String dir_name = this.dir_name;
+        if (dir_name == null) {
+            Scanner in = new Scanner(System.in);
+            System.out.println("Absolute path (directory):");
+            dir_name = in.nextLine();
+        }
+        Path dir = Paths.get(dir_name);
+        if (!Files.exists(dir) || !Files.isDirectory(dir) || !dir.isAbsolute()) {
+            System.err.println("The directory '"+dir_name+ "' is not valid. Check if it exist, that it is a directory and provide an absolute path");
+            return Stream.empty();
+        }
+        try {
+            return Files
+                    .list(dir)
+                    .filter(dirPath -> dirPath.toString().endsWith(".txt") || dirPath.toString().endsWith(".txt.gz"))
+                    .flatMap(this::split);
+        } catch (Exception e) {
+            System.err.println("IO error opening the directory '"+dir_name+ "'");
+            System.err.println(e.getMessage());
+            return Stream.empty();
+        }
+    }
+
+    // a gzip file cannot be read from the middle, it is a single job
+    private Stream<AJob<K, String>> split(Path filePath) {
+        if (GzipInput.isCompressed(filePath))
+            return Stream.of(newJob(filePath.toString(), 0, Long.MAX_VALUE));
+        long size;
+        try {
+            size = Files.size(filePath);
+        } catch (IOException e) {
+            size = 0; // let the job report the error
+        }
+        long splits = Math.max(1, (size + splitSize - 1) / splitSize);
+        return LongStream.range(0, splits).mapToObj(i -> newJob(filePath.toString(),
+                i * splitSize, i == splits - 1 ? Long.MAX_VALUE : (i + 1) * splitSize));
+    }
+
+    /** Opens the writer of the output, closed once all the classes are written. Writes to out_file by default. */
+    protected PrintWriter openOutput() throws IOException {
+        return new PrintWriter(this.out_file, StandardCharsets.UTF_8);
+    }
+
+    /** Reports where the output was written, on the standard output by default. */
+    protected void outputWritten(String destination) {
+        System.out.println("Output wrote to " + destination);
+    }
+
+    // only how many words share the key matters: every key is reduced to a count as the words arrive
+    @Override
+    public Collector<String, ?, Integer> reducer() {
+        return Collectors.summingInt(word -> 1);
+    }
+
+    @Override
+    public Comparator<? super Pair<K, Integer>> outputOrder() {
+        return sortedByKey && topK <= 0 ? Comparator.comparing(Pair::getKey) : null;
+    }
+
+    // the largest classes first, then by key
+    private Comparator<Pair<K, Integer>> bySize() {
+        return Comparator.<Pair<K, Integer>, Integer>comparing(Pair::getValue).reversed().thenComparing(Pair::getKey);
+    }
+
+    private Stream<Pair<K, Integer>> largest(Stream<Pair<K, Integer>> stream) {
+        Comparator<Pair<K, Integer>> bySize = bySize();
+        // the head is the smallest of the classes kept so far, the first to leave when a larger one comes
+        PriorityQueue<Pair<K, Integer>> heap = new PriorityQueue<>(topK + 1, bySize.reversed());
+        stream.forEach(kCountPair -> {
+            heap.add(kCountPair);
+            if (heap.size() > topK)
+                heap.poll();
+        });
+        List<Pair<K, Integer>> largest = new ArrayList<>(heap);
+        largest.sort(bySize);
+        return largest.stream();
+    }
+
+    @Override
+    public boolean hasPartitionedOutput() {
+        return partsDir != null && topK <= 0;
+    }
+
+    @Override
+    public void outputPartition(int partition, Stream<Pair<K, Integer>> stream) {
+        try {
+            Path dir = Files.createDirectories(Paths.get(partsDir));
+            PartitionedOutput.write(PartitionedOutput.partFile(dir, partition),
+                    stream.map(kCountPair -> kCountPair.getKey() + ", " + kCountPair.getValue()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void outputPartitionsDone(int partitions) {
+        Path dir = Paths.get(partsDir);
+        outputWritten(partitions + " parts in " + dir);
+        if (!joinParts)
+            return;
+        List<Path> parts = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++)
+            parts.add(PartitionedOutput.partFile(dir, p));
+        try {
+            if (sortedByKey)
+                PartitionedOutput.merge(parts, Paths.get(out_file), Comparator.comparing(ACountAnagramsStrategy::keyOf));
+            else
+                PartitionedOutput.concatenate(parts, Paths.get(out_file));
+            outputWritten(out_file);
+        } catch (IOException e) {
+            System.err.println("IO error occurred");
+            System.err.println(e.getMessage());
+        }
+    }
+
+    // the keys are written as their text, whose order is the order of the keys
+    private static String keyOf(String line) {
+        return line.substring(0, line.lastIndexOf(", "));
+    }
+
+    @Override
+    public void outputReduced(Stream<Pair<K, Integer>> stream) {
+        if (topK > 0)
+            stream = largest(stream);
+        try (PrintWriter pw = openOutput()) {
+            stream.forEach((kCountPair ->
+                pw.println(kCountPair.getKey() + ", " + kCountPair.getValue())
+            ));
+            outputWritten(out_file);
+        } catch (IOException e) {
+            System.err.println("IO error occurred");
+            System.err.println(e.getMessage());
+        }
+    }
+}
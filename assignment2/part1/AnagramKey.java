@@ -0,0 +1,147 @@
+package part1;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Key grouping the anagrams of a word, built from the histogram of its letters instead of sorting them.
+ * Words of at most 12 ASCII letters are packed in a long, 5 bits per lowercase letter in alphabetical order,
+ * longer words fall back to the string of their sorted lowercase letters. Two words have equal keys exactly
+ * when they have equal sorted strings, and toString returns that string, so the output does not change.
+ * Keys are created through an Encoder, which reuses the same instance for the same packed letters.
+ */
+public final class AnagramKey implements Comparable<AnagramKey>, Serializable {
+    private static final int MAX_PACKED_LETTERS = 12;
+    private static final int BITS_PER_LETTER = 5;
+
+    // 0 for the keys of the longer words
+    private final long packed;
+    // null for the packed keys
+    private final String sorted;
+
+    private AnagramKey(long packed, String sorted) {
+        this.packed = packed;
+        this.sorted = sorted;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AnagramKey)) return false;
+        AnagramKey other = (AnagramKey) o;
+        return packed == other.packed && (sorted == null ? other.sorted == null : sorted.equals(other.sorted));
+    }
+
+    @Override
+    public int hashCode() {
+        return sorted == null ? Long.hashCode(mix(packed)) : sorted.hashCode();
+    }
+
+    // the first letter is in the highest bits and the unused bits are 0, so comparing two packed keys
+    // as numbers is the same as comparing their sorted strings
+    @Override
+    public int compareTo(AnagramKey other) {
+        if (sorted == null && other.sorted == null)
+            return Long.compare(packed, other.packed);
+        return toString().compareTo(other.toString());
+    }
+
+    @Override
+    public String toString() {
+        if (sorted != null)
+            return sorted;
+        StringBuilder letters = new StringBuilder(MAX_PACKED_LETTERS);
+        for (int shift = (MAX_PACKED_LETTERS - 1) * BITS_PER_LETTER; shift >= 0; shift -= BITS_PER_LETTER) {
+            int letter = (int) (packed >>> shift) & 0x1F;
+            if (letter == 0) break;
+            letters.append((char) ('a' + letter - 1));
+        }
+        return letters.toString();
+    }
+
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        return x ^ (x >>> 33);
+    }
+
+    /**
+     * Creates the keys of the words of a single job. Not thread-safe: every execution needs its own encoder.
+     * The packed keys already created are kept in an open addressing table, so a repeated word costs
+     * no allocation at all.
+     */
+    public static final class Encoder {
+        private final int[] histogram = new int[26];
+        private long[] packedKeys = new long[1024];
+        private AnagramKey[] keys = new AnagramKey[1024];
+        private int size;
+
+        public AnagramKey encode(CharSequence word) {
+            int length = word.length();
+            if (length == 0 || length > MAX_PACKED_LETTERS || !count(word))
+                return new AnagramKey(0, sorted(word));
+            long packed = 0;
+            int shift = (MAX_PACKED_LETTERS - 1) * BITS_PER_LETTER;
+            for (int letter = 0; letter < 26; letter++) {
+                for (int n = histogram[letter]; n > 0; n--) {
+                    packed |= (long) (letter + 1) << shift;
+                    shift -= BITS_PER_LETTER;
+                }
+                histogram[letter] = 0;
+            }
+            return intern(packed);
+        }
+
+        // fills the histogram, false (and a clean histogram) if the word is not made of ASCII letters only
+        private boolean count(CharSequence word) {
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                int letter = (c | 0x20) - 'a'; // lowercase of an ASCII letter
+                if (letter < 0 || letter >= 26 || c > 'z') {
+                    Arrays.fill(histogram, 0);
+                    return false;
+                }
+                histogram[letter]++;
+            }
+            return true;
+        }
+
+        private AnagramKey intern(long packed) {
+            int mask = packedKeys.length - 1;
+            int slot = (int) mix(packed) & mask;
+            while (packedKeys[slot] != 0) {
+                if (packedKeys[slot] == packed)
+                    return keys[slot];
+                slot = (slot + 1) & mask;
+            }
+            AnagramKey key = new AnagramKey(packed, null);
+            packedKeys[slot] = packed;
+            keys[slot] = key;
+            if (++size * 2 > packedKeys.length)
+                grow();
+            return key;
+        }
+
+        private void grow() {
+            long[] oldPacked = packedKeys;
+            AnagramKey[] oldKeys = keys;
+            packedKeys = new long[oldPacked.length * 2];
+            keys = new AnagramKey[oldKeys.length * 2];
+            int mask = packedKeys.length - 1;
+            for (int i = 0; i < oldPacked.length; i++) {
+                if (oldPacked[i] == 0) continue;
+                int slot = (int) mix(oldPacked[i]) & mask;
+                while (packedKeys[slot] != 0)
+                    slot = (slot + 1) & mask;
+                packedKeys[slot] = oldPacked[i];
+                keys[slot] = oldKeys[i];
+            }
+        }
+
+        private static String sorted(CharSequence word) {
+            char[] charArray = word.toString().toLowerCase().toCharArray();
+            Arrays.sort(charArray);
+            return new String(charArray);
+        }
+    }
+}
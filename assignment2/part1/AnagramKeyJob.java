@@ -0,0 +1,23 @@
+package part1;
+
+import java.util.function.Function;
+
+/**
+ * CiaoJob with AnagramKey keys: no sorting and, for the repeated words, no allocation to compute the key.
+ */
+public class AnagramKeyJob extends ACiaoJob<AnagramKey> {
+
+    public AnagramKeyJob(String filePath) {
+        this(filePath, 0, Long.MAX_VALUE);
+    }
+
+    /** Job for the words starting in the byte range [start, end) of the file. */
+    public AnagramKeyJob(String filePath, long start, long end) {
+        super(filePath, start, end);
+    }
+
+    @Override
+    protected Function<String, AnagramKey> ciao() {
+        return new AnagramKey.Encoder()::encode;
+    }
+}
@@ -0,0 +1,137 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Approximate CountAnagramsStrategy for inputs too large to keep every anagram class in memory.
+ * All the pairs of the jobs are reduced into a single KeySketch, whose size only depends on the error bounds:
+ * the output has the total number of words, the estimated number of anagram classes and the largest classes
+ * with their estimated number of words and of distinct words. The sketches of the jobs and of the partitions
+ * are merged by the scheduler as any other reduction.
+ */
+public class ApproximateCountAnagramsStrategy implements ReducingStrategy<String, Pair<String, String>, KeySketch<String>>, Serializable {
+    // every pair goes to the same sketch
+    private static final String SKETCH = "";
+
+    private final CountAnagramsStrategy words;
+    private final String out_file;
+    private double epsilon = 1e-4;
+    private double delta = 0.01;
+    private double distinctError = 0.02;
+    private int heavyHitters = 100;
+
+    public ApproximateCountAnagramsStrategy() {
+        this(null, "count_anagrams_approx.txt");
+    }
+
+    public ApproximateCountAnagramsStrategy(String dir_name, String out_file) {
+        this.words = new CountAnagramsStrategy(dir_name, out_file);
+        this.out_file = out_file;
+    }
+
+    /**
+     * Sets the error bounds: the number of words of a class is overestimated by at most epsilon times the
+     * number of all the words with probability 1 - delta, the numbers of distinct words and of classes have
+     * the given relative error. Defaults to 1e-4, 0.01 and 0.02.
+     */
+    public void setErrorBounds(double epsilon, double delta, double distinctError) {
+        this.epsilon = epsilon;
+        this.delta = delta;
+        this.distinctError = distinctError;
+    }
+
+    /** Sets how many of the largest classes are written, 100 by default. */
+    public void setHeavyHitters(int heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
+
+    /** Sets the size of the splits of the files, as CountAnagramsStrategy.setSplitSize. */
+    public void setSplitSize(long splitSize) {
+        words.setSplitSize(splitSize);
+    }
+
+    @Override
+    public Stream<AJob<String, Pair<String, String>>> emit() {
+        String parameters = parameters();
+        return words.emit().map(job -> new Sketched(job, parameters));
+    }
+
+    @Override
+    public Collector<Pair<String, String>, ?, KeySketch<String>> reducer() {
+        return KeySketch.<String, String>collector(epsilon, delta, distinctError, heavyHitters);
+    }
+
+    // the sketches of a job cached with other bounds would be merged with the new ones
+    @Override
+    public String reducerVariant() {
+        return getClass().getName() + " " + parameters();
+    }
+
+    private String parameters() {
+        return epsilon + " " + delta + " " + distinctError + " " + heavyHitters;
+    }
+
+    @Override
+    public void outputReduced(Stream<Pair<String, KeySketch<String>>> stream) {
+        try (PrintWriter pw = new PrintWriter(this.out_file, StandardCharsets.UTF_8)) {
+            stream.forEach(sketchPair -> {
+                KeySketch<String> sketch = sketchPair.getValue();
+                pw.println("# " + sketch.totalCount() + " words, about " + sketch.estimateDistinctKeys()
+                        + " anagram classes; key, words, distinct words of the largest classes");
+                sketch.heavyHitters().forEach(estimate ->
+                        pw.println(estimate.key() + ", " + estimate.count() + ", " + estimate.distinctValues()));
+            });
+            System.out.println("Output wrote to " + out_file);
+        } catch (IOException e) {
+            System.err.println("IO error occurred");
+            System.err.println(e.getMessage());
+        }
+    }
+
+    // the pairs of a CountAnagramsStrategy job, all under the key of the sketch
+    private static class Sketched extends AJob<String, Pair<String, String>> implements Serializable {
+        private final AJob<String, String> job;
+        // the bounds and the heavy hitters of the sketch, part of the cache key
+        private final String parameters;
+
+        Sketched(AJob<String, String> job, String parameters) {
+            this.job = job;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public Stream<Pair<String, Pair<String, String>>> execute() {
+            return job.execute().map(pair -> new Pair<>(SKETCH, pair));
+        }
+
+        @Override
+        public void execute(Consumer<? super Pair<String, Pair<String, String>>> sink) {
+            job.execute(pair -> sink.accept(new Pair<>(SKETCH, pair)));
+        }
+
+        @Override
+        public long inputSize() {
+            return job.inputSize();
+        }
+
+        @Override
+        public String cacheKey() {
+            String key = job.cacheKey();
+            return key == null ? null : "sketched " + parameters + " " + key;
+        }
+
+        @Override
+        public String toString() {
+            return job.toString();
+        }
+    }
+}
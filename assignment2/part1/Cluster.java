@@ -0,0 +1,229 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Worker JVMs (see ClusterWorker) running the jobs of a JobSchedulerContext and the reduction of their pairs,
+ * each one with its own heap. Every worker reduces one partition of the keys, so the coordinator only receives
+ * the final reductions. The workers can be started on this machine or be already running anywhere.
+ * Jobs, keys, values and accumulations travel serialized: they must be Serializable, classes of part1
+ * or of java.lang and java.util (ClusterWorker.FILTER), and the hashCode of the keys must be the same in every JVM.
+ */
+public class Cluster implements Closeable {
+    private final List<InetSocketAddress> workers;
+    // the worker processes started by this cluster, stopped by close
+    private final List<Process> processes;
+
+    private Cluster(List<InetSocketAddress> workers, List<Process> processes) {
+        this.workers = List.copyOf(workers);
+        this.processes = processes;
+    }
+
+    /** Uses the workers already listening at the given addresses, which close leaves running. */
+    public static Cluster connect(List<InetSocketAddress> workers) {
+        return new Cluster(workers, List.of());
+    }
+
+    /**
+     * Starts the given number of worker JVMs on this machine, with the class path of this JVM and
+     * the given JVM options, such as the heap size of every worker.
+     */
+    public static Cluster startLocal(int workers, String... jvmOptions) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<InetSocketAddress> addresses = new ArrayList<>(workers);
+        List<Process> processes = new ArrayList<>(workers);
+        try {
+            for (int i = 0; i < workers; i++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(List.of(jvmOptions));
+                command.addAll(List.of("-cp", System.getProperty("java.class.path"), ClusterWorker.class.getName()));
+                Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                processes.add(process);
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), awaitPort(process)));
+            }
+        } catch (IOException e) {
+            processes.forEach(Process::destroy);
+            throw e;
+        }
+        return new Cluster(addresses, processes);
+    }
+
+    // reads the port from the first line of the worker, then keeps forwarding its output
+    private static int awaitPort(Process process) throws IOException {
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = output.readLine();
+        if (line == null || !line.startsWith("LISTENING "))
+            throw new IOException("Worker did not start: " + line);
+        Thread forward = new Thread(() -> output.lines().forEach(System.out::println), "worker-output");
+        forward.setDaemon(true);
+        forward.start();
+        return Integer.parseInt(line.substring("LISTENING ".length()).trim());
+    }
+
+    public List<InetSocketAddress> getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Runs the jobs on the workers, every worker asking the next job as soon as it is done with the previous one,
+     * and returns the reductions of all the partitions, merged by the given order if not null.
+     * Without a strategy the values of every key are grouped in a list. The strategy must be Serializable.
+     */
+    <K, V, R> Stream<Pair<K, R>> run(Stream<AJob<K,V>> jobs, ReducingStrategy<K, V, R> strategy, Comparator<? super Pair<K, R>> order) {
+        if (strategy != null && !(strategy instanceof Serializable))
+            throw new IllegalArgumentException(strategy.getClass().getName() + " must be Serializable to run on a cluster");
+        String run = UUID.randomUUID().toString();
+        Iterator<AJob<K,V>> pending = jobs.iterator();
+        List<Connection> connections = new ArrayList<>(workers.size());
+        ExecutorService coordinators = Executors.newFixedThreadPool(workers.size());
+        try {
+            for (InetSocketAddress worker : workers)
+                connections.add(new Connection(worker));
+            List<Future<?>> mapped = new ArrayList<>(workers.size());
+            for (Connection connection : connections)
+                mapped.add(coordinators.submit(() -> {
+                    connection.map(new ClusterWorker.Start(run, workers.size(), strategy), () -> next(pending));
+                    return null;
+                }));
+            mapped.forEach(JobSchedulerContext::join);
+            // all the workers reduce at the same time, the first reductions are read once they are all asked
+            for (int partition = 0; partition < workers.size(); partition++)
+                connections.get(partition).reduce(new ClusterWorker.Reduce(run, partition, workers));
+            for (Connection connection : connections)
+                connection.reduced();
+            List<Iterator<Pair<K, R>>> partitions = new ArrayList<>(workers.size());
+            for (Connection connection : connections)
+                partitions.add(connection.reductions());
+            if (order != null)
+                return PartitionedShuffle.merge(partitions, order);
+            return partitions.stream().flatMap(partition ->
+                    StreamSupport.stream(Spliterators.spliteratorUnknownSize(partition, Spliterator.ORDERED), false));
+        } catch (IOException e) {
+            connections.forEach(Connection::close);
+            throw new UncheckedIOException("Cluster run failed", e);
+        } catch (ClassNotFoundException e) {
+            connections.forEach(Connection::close);
+            throw new IllegalStateException("Cluster run failed", e);
+        } catch (RuntimeException e) {
+            connections.forEach(Connection::close);
+            throw e;
+        } finally {
+            coordinators.shutdown();
+        }
+    }
+
+    // the jobs are emitted lazily, by one worker at a time
+    private static <T> T next(Iterator<T> pending) {
+        synchronized (pending) {
+            return pending.hasNext() ? pending.next() : null;
+        }
+    }
+
+    /** Stops the workers started by this cluster. */
+    @Override
+    public void close() {
+        if (processes.isEmpty())
+            return;
+        for (InetSocketAddress worker : workers) {
+            try {
+                shutdown(worker);
+            } catch (IOException e) {
+                System.err.println("Cannot stop the worker " + worker + ": " + e.getMessage());
+            }
+        }
+        for (Process process : processes) {
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroy();
+            }
+        }
+    }
+
+    private static void shutdown(InetSocketAddress worker) throws IOException {
+        try (Socket socket = new Socket(worker.getAddress(), worker.getPort())) {
+            ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
+            out.writeObject(ClusterWorker.SHUTDOWN);
+            out.flush();
+        }
+    }
+
+    // the connection of a run with a worker
+    private static class Connection implements Closeable {
+        private final InetSocketAddress worker;
+        private final Socket socket;
+        private final ObjectOutputStream out;
+        private final ObjectInputStream in;
+
+        Connection(InetSocketAddress worker) throws IOException {
+            this.worker = worker;
+            this.socket = new Socket(worker.getAddress(), worker.getPort());
+            this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            this.in = ClusterWorker.input(socket.getInputStream());
+        }
+
+        // sends the jobs one at a time, failing at the first failed job
+        void map(ClusterWorker.Start start, Supplier<AJob<?, ?>> jobs) throws IOException, ClassNotFoundException {
+            out.writeObject(start);
+            for (AJob<?, ?> job = jobs.get(); job != null; job = jobs.get()) {
+                out.writeObject(job);
+                out.reset();
+                out.flush();
+                Object error = in.readObject();
+                if (error != null)
+                    throw new IllegalStateException("Job " + job + " failed on worker " + worker + ": " + error);
+            }
+            out.writeObject(null);
+            out.flush();
+            in.readObject();
+        }
+
+        void reduce(ClusterWorker.Reduce reduce) throws IOException {
+            out.writeObject(reduce);
+            out.flush();
+        }
+
+        // waits for the worker to be done fetching its partition
+        void reduced() throws IOException, ClassNotFoundException {
+            in.readObject();
+        }
+
+        // the reductions are read while consumed, the connection is closed after the last one
+        <T extends Pair<?, ?>> Iterator<T> reductions() {
+            return new PairFile.Reader<>(in);
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+}
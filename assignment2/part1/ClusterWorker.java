@@ -0,0 +1,202 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Worker process of a Cluster. For every run the coordinator opens a connection, sends a Start and then the jobs
+ * one at a time: the worker executes them, accumulating their values in one partition per worker by the hash of
+ * the key. Once every worker has executed its jobs, the coordinator sends a Reduce on the same connection:
+ * the worker fetches its partition from all the workers, itself included, merges the accumulations, finishes them,
+ * tells that it is done fetching and sends back the reductions. The state of a run is dropped when its connection closes. Messages are serialized objects, pairs are sent in the PairFile format.
+ * Only the classes of part1 and the basic ones of java.lang and java.util are deserialized (see FILTER),
+ * and only a connection from this machine can shut the worker down.
+ * Usage: ClusterWorker [port] [bind-address]. It prints "LISTENING port" on the standard output once ready.
+ */
+public class ClusterWorker {
+    static final String SHUTDOWN = "shutdown";
+    // the connections are not authenticated: anything else could be a deserialization gadget
+    static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter("maxdepth=100;"
+            + "part1.**;java.lang.*;java.util.*;"
+            + "java.net.SocketAddress;java.net.InetSocketAddress;java.net.InetSocketAddress$*;java.net.InetAddress;java.net.InetAddress$*;"
+            + "java.net.Inet4Address;java.net.Inet6Address;java.net.Inet6Address$*;!*");
+
+    /** Beginning of a run, the strategy is null when the values are grouped in lists. */
+    record Start(String run, int partitions, ReducingStrategy<?, ?, ?> strategy) implements Serializable {
+    }
+
+    /** Asks the worker to reduce the given partition, fetching it from every worker. */
+    record Reduce(String run, int partition, List<InetSocketAddress> workers) implements Serializable {
+    }
+
+    /** Asks the accumulations of a partition of a run, sent at most once per partition. */
+    record Fetch(String run, int partition) implements Serializable {
+    }
+
+    // the accumulations of a run still to be fetched
+    private static class RunState {
+        private final List<Map<Object, Object>> partitions;
+        private final Collector<Object, Object, Object> reducer;
+        private final Comparator<Object> order;
+        private final AtomicInteger unfetched;
+
+        RunState(List<Map<Object, Object>> partitions, Collector<Object, Object, Object> reducer, Comparator<Object> order) {
+            this.partitions = partitions;
+            this.reducer = reducer;
+            this.order = order;
+            this.unfetched = new AtomicInteger(partitions.size());
+        }
+    }
+
+    private final Map<String, RunState> runs = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        InetAddress address = args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+        new ClusterWorker().serve(new ServerSocket(port, 50, address));
+    }
+
+    /** Handles every connection on its own thread until a shutdown request. */
+    public void serve(ServerSocket server) throws IOException {
+        try (server) {
+            System.out.println("LISTENING " + server.getLocalPort());
+            System.out.flush();
+            while (running) {
+                Socket connection = server.accept();
+                Thread handler = new Thread(() -> handle(connection, server), "worker-" + connection.getRemoteSocketAddress());
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } catch (IOException e) {
+            if (running)
+                throw e;
+        }
+    }
+
+    /** The stream of objects read from another process, accepting only the classes of FILTER. */
+    static ObjectInputStream input(InputStream in) throws IOException {
+        ObjectInputStream objects = new ObjectInputStream(new BufferedInputStream(in));
+        objects.setObjectInputFilter(FILTER);
+        return objects;
+    }
+
+    private void handle(Socket connection, ServerSocket server) {
+        String run = null;
+        try (connection) {
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            out.flush();
+            ObjectInputStream in = input(connection.getInputStream());
+            Object request = in.readObject();
+            if (request instanceof Start) {
+                Start start = (Start) request;
+                run = start.run();
+                map(start, in, out);
+                Reduce reduce = (Reduce) in.readObject();
+                List<Pair<Object, Object>> reductions = reduce(reduce);
+                // done fetching: the coordinator waits for every worker to be done before reading any reductions,
+                // so once it closes the connection no worker can still fetch from this one
+                out.writeObject(null);
+                out.flush();
+                PairFile.write(out, reductions);
+                in.read();
+            } else if (request instanceof Fetch) {
+                PairFile.write(out, fetch((Fetch) request));
+            } else if (SHUTDOWN.equals(request) && connection.getInetAddress().isLoopbackAddress()) {
+                running = false;
+                server.close();
+            }
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            System.err.println("Worker request failed: " + e);
+        } finally {
+            // a failed run leaves its partitions unfetched
+            if (run != null)
+                runs.remove(run);
+        }
+    }
+
+    // the types of the keys and of the values are only known to the jobs and to the strategy
+    @SuppressWarnings("unchecked")
+    private void map(Start start, ObjectInputStream in, ObjectOutputStream out) throws IOException, ClassNotFoundException {
+        Collector<Object, Object, Object> reducer = start.strategy() == null
+                ? (Collector<Object, Object, Object>) (Collector<?, ?, ?>) Collectors.toList()
+                : (Collector<Object, Object, Object>) start.strategy().reducer();
+        Comparator<Object> order = start.strategy() == null ? null : (Comparator<Object>) start.strategy().outputOrder();
+        Supplier<Object> supplier = reducer.supplier();
+        BiConsumer<Object, Object> accumulator = reducer.accumulator();
+        List<Map<Object, Object>> partitions = new ArrayList<>(start.partitions());
+        for (int i = 0; i < start.partitions(); i++)
+            partitions.add(new HashMap<>());
+        for (Object job = in.readObject(); job != null; job = in.readObject()) {
+            String error = null;
+            try {
+                ((AJob<Object, Object>) job).execute(pair -> accumulator.accept(partitions
+                        .get(PartitionedShuffle.partitionOf(pair.getKey(), partitions.size()))
+                        .computeIfAbsent(pair.getKey(), key -> supplier.get()), pair.getValue()));
+            } catch (RuntimeException e) {
+                error = String.valueOf(e.getMessage());
+            }
+            out.writeObject(error);
+            out.flush();
+        }
+        // published before the coordinator hears that the jobs are over, and then before any fetch
+        runs.put(start.run(), new RunState(partitions, reducer, order));
+        out.writeObject(null);
+        out.flush();
+    }
+
+    private List<Pair<Object, Object>> fetch(Fetch fetch) {
+        RunState state = runs.get(fetch.run());
+        if (state == null)
+            throw new IllegalStateException("Unknown run " + fetch.run());
+        Map<Object, Object> partition = state.partitions.set(fetch.partition(), null);
+        if (state.unfetched.decrementAndGet() == 0)
+            runs.remove(fetch.run());
+        List<Pair<Object, Object>> accumulations = new ArrayList<>(partition.size());
+        partition.forEach((key, accumulation) -> accumulations.add(new Pair<>(key, accumulation)));
+        return accumulations;
+    }
+
+    private List<Pair<Object, Object>> reduce(Reduce reduce) throws IOException {
+        RunState state = runs.get(reduce.run());
+        if (state == null)
+            throw new IllegalStateException("Unknown run " + reduce.run());
+        BinaryOperator<Object> combiner = state.reducer.combiner();
+        Function<Object, Object> finisher = state.reducer.finisher();
+        Map<Object, Object> accumulations = new HashMap<>();
+        for (InetSocketAddress worker : reduce.workers()) {
+            try (Socket connection = new Socket(worker.getAddress(), worker.getPort())) {
+                ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                out.writeObject(new Fetch(reduce.run(), reduce.partition()));
+                out.flush();
+                ObjectInputStream in = input(connection.getInputStream());
+                new PairFile.Reader<Pair<Object, Object>>(in)
+                        .forEachRemaining(pair -> accumulations.merge(pair.getKey(), pair.getValue(), combiner));
+            }
+        }
+        List<Pair<Object, Object>> reductions = new ArrayList<>(accumulations.size());
+        accumulations.forEach((key, accumulation) -> reductions.add(new Pair<>(key, finisher.apply(accumulation))));
+        if (state.order != null)
+            reductions.sort(state.order);
+        return reductions;
+    }
+}
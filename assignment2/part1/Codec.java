@@ -0,0 +1,22 @@
+package part1;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of keys or values, used to keep the intermediate pairs as bytes instead of objects.
+ * An encoding must be self-delimiting: decode reads exactly the bytes that encode wrote.
+ */
+public interface Codec<T> {
+    /** Codec of any String, as its UTF-8 bytes prefixed by their length. ASCII strings are decoded without a charset. */
+    Codec<String> STRING = new StringCodec();
+
+    /**
+     * Writes the value at the position of the buffer, advancing it.
+     * Throws BufferOverflowException if the value does not fit in the remaining bytes.
+     */
+    void encode(T value, ByteBuffer out) throws BufferOverflowException;
+
+    /** Reads a value written by encode at the position of the buffer, advancing it. */
+    T decode(ByteBuffer in);
+}
@@ -0,0 +1,22 @@
+package part1;
+
+import part1.aux_files.AJob;
+
+/**
+ * CountAnagramsStrategy grouping by AnagramKey instead of the sorted string, with the same output.
+ */
+public class CountAnagramKeysStrategy extends ACountAnagramsStrategy<AnagramKey> {
+
+    public CountAnagramKeysStrategy() {
+        this(null, "count_anagrams.txt");
+    }
+
+    public CountAnagramKeysStrategy(String dir_name, String out_file) {
+        super(dir_name, out_file);
+    }
+
+    @Override
+    protected AJob<AnagramKey, String> newJob(String filePath, long start, long end) {
+        return new AnagramKeyJob(filePath, start, end);
+    }
+}
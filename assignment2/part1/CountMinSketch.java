@@ -0,0 +1,58 @@
+package part1;
+
+import java.io.Serializable;
+
+/**
+ * Count-Min sketch: estimates how many times every key was added with a fixed table of counters.
+ * An estimate is never below the true count, and exceeds it by more than epsilon times the total count
+ * with probability at most delta. Sketches with the same bounds can be merged.
+ * Keys are hashed through their hashCode, which must be the same in every JVM to merge sketches among them.
+ */
+public final class CountMinSketch implements Serializable {
+    private final int width;
+    private final long[][] counters;
+    private long total;
+
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || delta <= 0 || delta >= 1)
+            throw new IllegalArgumentException("Expected epsilon > 0 and 0 < delta < 1");
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.counters = new long[(int) Math.ceil(Math.log(1 / delta))][width];
+    }
+
+    public void add(Object key, long count) {
+        long h = Hashing.mix(key.hashCode());
+        for (int row = 0; row < counters.length; row++)
+            counters[row][column(h, row)] += count;
+        total += count;
+    }
+
+    public long estimate(Object key) {
+        long h = Hashing.mix(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++)
+            estimate = Math.min(estimate, counters[row][column(h, row)]);
+        return estimate;
+    }
+
+    /** Sum of all the counts added. */
+    public long total() {
+        return total;
+    }
+
+    /** Adds the counts of the other sketch, which must have the same bounds, to this one. */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.counters.length != counters.length)
+            throw new IllegalArgumentException("Cannot merge sketches with different bounds");
+        for (int row = 0; row < counters.length; row++)
+            for (int column = 0; column < width; column++)
+                counters[row][column] += other.counters[row][column];
+        total += other.total;
+    }
+
+    // the rows use independent hashes made from the two halves of a 64 bits hash (Kirsch-Mitzenmacher)
+    private int column(long h, int row) {
+        int combined = (int) h + row * (int) (h >>> 32);
+        return Math.floorMod(combined, width);
+    }
+}
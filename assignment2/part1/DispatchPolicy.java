@@ -0,0 +1,49 @@
+package part1;
+
+import part1.aux_files.AJob;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Order in which the parallel executions hand the jobs to the threads. Only the dispatch changes:
+ * the output of the jobs is still grouped in emission order.
+ */
+public enum DispatchPolicy {
+    /** Emission order. */
+    FIFO {
+        @Override
+        List<Integer> order(List<? extends AJob<?, ?>> jobs) {
+            return IntStream.range(0, jobs.size()).boxed().collect(Collectors.toList());
+        }
+    },
+    /**
+     * Most expensive jobs first (AJob.cost), so that the last jobs to start are short and the threads
+     * finish together instead of waiting for a large job started last.
+     */
+    LONGEST_FIRST {
+        @Override
+        List<Integer> order(List<? extends AJob<?, ?>> jobs) {
+            long[] costs = jobs.stream().mapToLong(AJob::cost).toArray();
+            List<Integer> order = FIFO.order(jobs);
+            order.sort(Comparator.comparingLong((Integer job) -> costs[job]).reversed());
+            return order;
+        }
+    },
+    /** Random order, so that expensive jobs emitted together do not run together. */
+    RANDOM {
+        @Override
+        List<Integer> order(List<? extends AJob<?, ?>> jobs) {
+            List<Integer> order = FIFO.order(jobs);
+            Collections.shuffle(order, ThreadLocalRandom.current());
+            return order;
+        }
+    };
+
+    /** Returns the positions of the jobs in dispatch order. */
+    abstract List<Integer> order(List<? extends AJob<?, ?>> jobs);
+}
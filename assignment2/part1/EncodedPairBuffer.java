@@ -0,0 +1,138 @@
+package part1;
+
+import part1.aux_files.Pair;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Buffer keeping the pairs encoded one after the other in off-heap segments of 64 KB, instead of as objects:
+ * a buffer costs its segments, whatever the number of its pairs, and the pairs are decoded again while read.
+ * Released segments go back to the pool of the buffer and are reused by the next buffers of the same pool.
+ * A pair larger than a segment is kept in a segment of its own, which the pool does not reuse.
+ */
+class EncodedPairBuffer<K, V> implements PairBuffer<Pair<K, V>> {
+    private static final int SEGMENT_SIZE = 64 << 10;
+
+    /**
+     * Bounded pool of segments, shared by the buffers of a context. The segments beyond the bound,
+     * and all of them once the pool is cleared, are left to the garbage collector, which frees their memory.
+     */
+    static final class Pool {
+        private final Queue<ByteBuffer> segments;
+
+        Pool(int maxSegments) {
+            this.segments = new ArrayBlockingQueue<>(maxSegments);
+        }
+
+        ByteBuffer acquire() {
+            ByteBuffer segment = segments.poll();
+            return segment == null ? ByteBuffer.allocateDirect(SEGMENT_SIZE) : segment;
+        }
+
+        void release(ByteBuffer segment) {
+            if (segment.isDirect() && segment.capacity() == SEGMENT_SIZE)
+                segments.offer(segment.clear());
+        }
+
+        void clear() {
+            segments.clear();
+        }
+    }
+
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final Pool pool;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private ByteBuffer current;
+
+    EncodedPairBuffer(Codec<K> keyCodec, Codec<V> valueCodec, Pool pool) {
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.pool = pool;
+    }
+
+    @Override
+    public void accept(Pair<K, V> pair) {
+        if (current == null)
+            current = pool.acquire();
+        if (encode(pair, current))
+            return;
+        // the pair goes whole into a new segment
+        segments.add(current);
+        current = pool.acquire();
+        if (encode(pair, current))
+            return;
+        // a pair larger than a segment gets a segment of its own, as large as needed and never pooled
+        for (int size = 2 * SEGMENT_SIZE; ; size *= 2) {
+            ByteBuffer large = ByteBuffer.allocate(size);
+            if (encode(pair, large)) {
+                segments.add(large);
+                return;
+            }
+        }
+    }
+
+    // false if the pair does not fit in the rest of the segment, which is then left as it was
+    private boolean encode(Pair<K, V> pair, ByteBuffer segment) {
+        int start = segment.position();
+        try {
+            keyCodec.encode(pair.getKey(), segment);
+            valueCodec.encode(pair.getValue(), segment);
+            return true;
+        } catch (BufferOverflowException e) {
+            segment.position(start);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return current == null;
+    }
+
+    @Override
+    public Stream<Pair<K, V>> stream() {
+        if (current != null) {
+            segments.add(current);
+            current = null;
+        }
+        Iterator<ByteBuffer> filled = segments.iterator();
+        Iterator<Pair<K, V>> pairs = new Iterator<>() {
+            // the segment being decoded, flipped for reading
+            private ByteBuffer segment = ByteBuffer.allocate(0);
+
+            @Override
+            public boolean hasNext() {
+                while (!segment.hasRemaining() && filled.hasNext())
+                    segment = filled.next().flip();
+                return segment.hasRemaining();
+            }
+
+            @Override
+            public Pair<K, V> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                K key = keyCodec.decode(segment);
+                return new Pair<>(key, valueCodec.decode(segment));
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pairs, Spliterator.ORDERED), false)
+                .onClose(this::release);
+    }
+
+    private void release() {
+        segments.forEach(pool::release);
+        segments.clear();
+    }
+}
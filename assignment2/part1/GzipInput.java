@@ -0,0 +1,94 @@
+package part1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams the decompressed bytes of a gzip file (.gz) without writing them to disk.
+ * The decompression runs on its own thread, filling one buffer while the caller consumes the other:
+ * the two buffers go back and forth between the threads through a pair of queues.
+ */
+final class GzipInput {
+    private static final String SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 1 << 20;
+    // the compressed bytes read at a time by the inflater
+    private static final int INFLATER_INPUT = 64 << 10;
+    // marks the end of the decompressed bytes, or the failure of the decompression
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private GzipInput() {
+    }
+
+    static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    /**
+     * Gives the decompressed bytes to the action one chunk at a time, in order. A chunk is reused once the action
+     * returns, so it must not be kept. Any failure of the decompression is thrown once the chunks before it are consumed.
+     */
+    static void forEachChunk(Path file, Consumer<ByteBuffer> action) throws IOException {
+        BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(2);
+        // one more place for END, so the decompressor never waits to end
+        BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(3);
+        free.add(ByteBuffer.allocate(BUFFER_SIZE));
+        free.add(ByteBuffer.allocate(BUFFER_SIZE));
+        Throwable[] failure = new Throwable[1];
+        Thread decompressor = new Thread(() -> {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file), INFLATER_INPUT)) {
+                boolean more = true;
+                while (more) {
+                    ByteBuffer chunk = free.take();
+                    more = fill(in, chunk.clear());
+                    full.put(chunk.flip());
+                }
+            } catch (InterruptedException e) {
+                // the consumer stopped, nobody waits for the end
+            } catch (Throwable e) {
+                failure[0] = e;
+            } finally {
+                // whatever stopped the decompression, the consumer must not wait for more chunks
+                full.add(END);
+            }
+        }, "gunzip " + file.getFileName());
+        decompressor.setDaemon(true);
+        decompressor.start();
+        try {
+            for (ByteBuffer chunk = full.take(); chunk != END; chunk = full.take()) {
+                action.accept(chunk);
+                free.put(chunk);
+            }
+            // the write of failure happens before the put of END
+            if (failure[0] instanceof IOException)
+                throw (IOException) failure[0];
+            if (failure[0] instanceof RuntimeException)
+                throw (RuntimeException) failure[0];
+            if (failure[0] instanceof Error)
+                throw (Error) failure[0];
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + file, e);
+        } finally {
+            decompressor.interrupt();
+        }
+    }
+
+    // reads until the chunk is full, returning false at the end of the stream
+    private static boolean fill(InputStream in, ByteBuffer chunk) throws IOException {
+        byte[] bytes = chunk.array();
+        while (chunk.hasRemaining()) {
+            int read = in.read(bytes, chunk.position(), chunk.remaining());
+            if (read < 0)
+                return false;
+            chunk.position(chunk.position() + read);
+        }
+        return true;
+    }
+}
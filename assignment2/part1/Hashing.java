@@ -0,0 +1,28 @@
+package part1;
+
+/**
+ * 64 bits hashes for the sketches, the same in every JVM.
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /** Spreads a 32 bits hash over 64 bits (the finalizer of MurmurHash3). */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** Hash of the chars of the string, with fewer collisions than the 32 bits of String.hashCode. */
+    static long hash64(String s) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < s.length(); i++)
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        return mix(h ^ s.length());
+    }
+}
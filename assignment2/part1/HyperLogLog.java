@@ -0,0 +1,56 @@
+package part1;
+
+import java.io.Serializable;
+
+/**
+ * HyperLogLog: estimates the number of distinct values added with 2^p registers of one byte,
+ * where p follows from the relative standard error asked (about 1.04 / sqrt(2^p)).
+ * Strings are hashed on their chars with 64 bits, other values through their hashCode.
+ * Estimators with the same error can be merged.
+ */
+public final class HyperLogLog implements Serializable {
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(double relativeError) {
+        if (relativeError <= 0 || relativeError >= 1)
+            throw new IllegalArgumentException("Expected 0 < relativeError < 1");
+        double registers = Math.pow(1.04 / relativeError, 2);
+        this.precision = Math.max(4, Math.min(18, (int) Math.ceil(Math.log(registers) / Math.log(2))));
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(Object value) {
+        long h = value instanceof String ? Hashing.hash64((String) value) : Hashing.mix(value.hashCode());
+        int register = (int) (h >>> (64 - precision));
+        // position of the first 1 bit of the remaining bits, the sentinel bit bounds it
+        int rank = Long.numberOfLeadingZeros(h << precision | 1L << (precision - 1)) + 1;
+        if (rank > registers[register])
+            registers[register] = (byte) rank;
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0)
+                zeros++;
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * m && zeros > 0)
+            estimate = m * Math.log((double) m / zeros);
+        return Math.round(estimate);
+    }
+
+    /** Adds the values of the other estimator, which must have the same error, to this one. */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision)
+            throw new IllegalArgumentException("Cannot merge estimators with different errors");
+        for (int i = 0; i < registers.length; i++)
+            registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+    }
+}
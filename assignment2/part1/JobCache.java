@@ -0,0 +1,95 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of the output of the jobs, keyed by their AJob.cacheKey, so that a scheduling
+ * only executes the jobs whose input changed and replays the stored output of the others.
+ * Keys and values must be Serializable. Entries that a scheduling did not use are removed by prune,
+ * so a cache directory should be used for a single input. Only the output of the jobs that completed
+ * without an exception, and read all their input, is stored.
+ */
+class JobCache {
+    private static final String SUFFIX = ".pairs";
+    // set by the job executing on the thread when it skips a part of its input
+    private static final ThreadLocal<Boolean> INPUT_SKIPPED = ThreadLocal.withInitial(() -> false);
+
+    private final Path dir;
+    private final Set<Path> used = ConcurrentHashMap.newKeySet();
+
+    JobCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Wraps the task so that its output is read from the cache when present and stored otherwise.
+     * The variant tells apart tasks producing different outputs from the same job.
+     */
+    <J extends AJob<?, ?>, T extends Pair<?, ?>> BiConsumer<J, Consumer<T>> cached(BiConsumer<J, Consumer<T>> task, String variant) {
+        return (job, sink) -> {
+            String key = job.cacheKey();
+            if (key == null) {
+                task.accept(job, sink);
+                return;
+            }
+            Path entry = dir.resolve(UUID.nameUUIDFromBytes((variant + "\n" + key).getBytes(StandardCharsets.UTF_8)) + SUFFIX);
+            used.add(entry);
+            try {
+                if (Files.exists(entry)) {
+                    new PairFile.Reader<T>(entry).forEachRemaining(sink);
+                    return;
+                }
+                List<T> output = new ArrayList<>();
+                INPUT_SKIPPED.set(false);
+                task.accept(job, output::add);
+                if (INPUT_SKIPPED.get()) {
+                    // the next run reads the input again, instead of replaying a part of it
+                    output.forEach(sink);
+                    return;
+                }
+                // written aside and then moved, so that an interrupted run never leaves a partial entry
+                Path written = Files.createTempFile(dir, "job", ".tmp");
+                PairFile.write(written, output);
+                Files.move(written, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                output.forEach(sink);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot use the job cache " + entry, e);
+            }
+        };
+    }
+
+    /**
+     * Called by a job that could not read its input, or a part of it, and went on without it:
+     * the output of its current execution is not stored.
+     */
+    static void inputSkipped() {
+        INPUT_SKIPPED.set(true);
+    }
+
+    /** Removes the entries not used since the last prune, those of the jobs whose input changed or disappeared. */
+    void prune() {
+        try (Stream<Path> entries = Files.list(dir)) {
+            entries.filter(entry -> entry.toString().endsWith(SUFFIX) && !used.contains(entry))
+                    .forEach(entry -> entry.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Cannot prune the job cache: " + e.getMessage());
+        }
+        used.clear();
+    }
+}
@@ -1,35 +1,590 @@
 package part1;
 
+import part1.SchedulerMetrics.Phase;
 import part1.aux_files.AJob;
 import part1.aux_files.Pair;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public class JobSchedulerContext<K, V> {
+public class JobSchedulerContext<K, V> implements AutoCloseable {
+    // numbers the MBeans of the contexts
+    private static final AtomicInteger CONTEXTS = new AtomicInteger();
+    // segments of 64 KB kept by the pool of the codecs at most, 16 MB
+    private static final int MAX_POOLED_SEGMENTS = 256;
+
     private JobSchedulerStrategy<K, V> strategy;
+    // the name of the MBean of the metrics, null if not registered
+    private final ObjectName mbean;
+    // null means sequential execution on the calling thread
+    private ExecutorService executor;
+    // whether the executor was created by this context, and then has to be shut down by it
+    private boolean ownsExecutor;
+    // number of reducer partitions of the parallel execution, less than 2 means a single global grouping
+    private int partitions;
+    // spill to disk above this many buffered pairs, 0 means everything stays in memory
+    private long maxBufferedPairs;
+    private Comparator<? super K> keyOrder;
+    // null means every job is executed at every scheduling
+    private JobCache cache;
+    private boolean compactKeyMaps;
+    private final SchedulerMetrics metrics = new SchedulerMetrics();
+    // null means the run summary is not written
+    private Path runSummaryFile;
+    // threads of the read and compute stages of the pipelined execution, 0 means no pipeline
+    private int pipelineReaders;
+    private int pipelineComputers;
+    private int pipelineQueueCapacity;
+    // null means the intermediate pairs are buffered as objects
+    private Codec<K> keyCodec;
+    private Codec<V> valueCodec;
+    // the segments of the encoded pairs, kept between the runs until the codecs are reset or the context closed
+    private EncodedPairBuffer.Pool segmentPool;
+    // null means the jobs run in this JVM
+    private Cluster cluster;
+    // copy the jobs running this many times slower than expected, 0 means never
+    private double speculationSlowdown;
+    private DispatchPolicy dispatchPolicy = DispatchPolicy.FIFO;
 
     public JobSchedulerContext(JobSchedulerStrategy<K, V> strategy) {
         this.strategy = strategy;
+        this.mbean = register(metrics);
+    }
+
+    public JobSchedulerContext(JobSchedulerStrategy<K, V> strategy, ExecutorService executor) {
+        this(strategy);
+        this.executor = executor;
     }
 
     public final void runScheduling() {
-        strategy.output(collect(compute(strategy.emit())));
+        metrics.runStarted();
+        Stream<AJob<K,V>> jobs = metrics.time(Phase.EMIT, strategy::emit);
+        if (cluster != null) {
+            runClustered(jobs);
+        } else if (pipelineReaders > 0) {
+            runPipelined(jobs);
+        } else {
+            if (strategy instanceof ReducingStrategy)
+                outputReduced((ReducingStrategy<K, V, ?>) strategy, jobs);
+            else
+                output(reduce(jobs, cached((job, sink) -> job.execute(sink), "pairs"), this::pairBuffer, this::collect, null));
+            // only these executions go through the cache, the others would find every entry unused
+            if (cache != null)
+                cache.prune();
+        }
+        metrics.runFinished();
+        if (runSummaryFile != null)
+            writeRunSummary();
+    }
+
+    private void output(Stream<Pair<K, List<V>>> groups) {
+        metrics.time(Phase.OUTPUT, () -> {
+            try (groups) {
+                strategy.output(groups.peek(group -> metrics.keyOutput()));
+            }
+        });
+    }
+
+    /** Metrics of the last scheduling, also registered as a JMX MBean until the context is closed. */
+    public SchedulerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Writes the JSON run summary of every next scheduling to the given file, null to stop. */
+    public void setRunSummaryFile(Path runSummaryFile) {
+        this.runSummaryFile = runSummaryFile;
+    }
+
+    private void writeRunSummary() {
+        try {
+            Files.writeString(runSummaryFile, metrics.getRunSummary() + System.lineSeparator());
+        } catch (IOException e) {
+            System.err.println("Cannot write the run summary to " + runSummaryFile);
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static ObjectName register(SchedulerMetrics metrics) {
+        try {
+            ObjectName name = new ObjectName("part1:type=JobSchedulerContext,id=" + CONTEXTS.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            return name;
+        } catch (JMException e) {
+            System.err.println("Cannot register the scheduler metrics: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Shuts down the executor created by the context, as shutdown, releases the segments of the codecs,
+     * and unregisters the MBean of the metrics,
+     * which would otherwise keep the context reachable for the lifetime of the JVM.
+     */
+    @Override
+    public void close() {
+        shutdown();
+        setCodecs(null, null);
+        if (mbean == null)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbean);
+        } catch (JMException e) {
+            // already unregistered by a previous close
+        }
     }
 
     public void setStrategy(JobSchedulerStrategy<K, V> newStrategy) {
         this.strategy = newStrategy;
     }
 
-    private Stream<Pair<K,V>> compute(Stream<AJob<K,V>> jobs) {
-        return jobs.flatMap(AJob::execute);
+    /**
+     * Runs the jobs of the next schedulings concurrently on the given executor.
+     * Passing null restores the sequential execution. An executor previously created by the context is shut down.
+     */
+    public void setExecutor(ExecutorService executor) {
+        shutdown();
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the jobs of the next schedulings on a new ForkJoinPool with the given degree of parallelism.
+     */
+    public void setParallelism(int parallelism) {
+        setExecutor(new ForkJoinPool(parallelism));
+        this.ownsExecutor = true;
+    }
+
+    /**
+     * Runs every job of the next schedulings on its own virtual thread, so that thousands of jobs
+     * blocked on I/O cost little. Virtual threads need Java 21: on older runtimes every job
+     * gets its own platform thread instead. Returns whether the jobs got virtual threads.
+     */
+    public boolean setVirtualThreadPerJob() {
+        ExecutorService virtualThreads;
+        boolean virtual = true;
+        try {
+            // looked up by reflection, so that the scheduler still compiles and runs on older runtimes
+            virtualThreads = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads are not available, using a platform thread per job");
+            virtual = false;
+            virtualThreads = Executors.newCachedThreadPool(job -> {
+                Thread thread = new Thread(job);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        setExecutor(virtualThreads);
+        this.ownsExecutor = true;
+        return virtual;
+    }
+
+    /**
+     * Shuts down the executor if it was created by this context, going back to the sequential execution.
+     * Executors given to the context are left running.
+     */
+    public void shutdown() {
+        if (ownsExecutor)
+            executor.shutdown();
+        this.executor = null;
+        this.ownsExecutor = false;
+    }
+
+    /**
+     * Splits the pairs of the parallel execution into the given number of partitions by the hash of their key,
+     * and groups every partition in its own task instead of building a single global map.
+     */
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    /**
+     * Bounds the number of intermediate pairs kept in memory by every grouping: above the budget they are
+     * sorted by the given key order and spilled to temporary files, which are merged back during the reduction.
+     * Keys and values must be Serializable. A budget of 0 keeps everything in memory.
+     * Only the sequential execution is bounded as a whole, since its pairs go straight to the grouping.
+     * The parallel executions buffer the output of every job, and then of every partition, in memory
+     * before grouping it, so there the budget only bounds the grouping of each partition.
+     */
+    public void setMemoryBudget(long maxBufferedPairs, Comparator<? super K> keyOrder) {
+        this.maxBufferedPairs = maxBufferedPairs;
+        this.keyOrder = keyOrder;
+    }
+
+    /**
+     * Makes the next schedulings incremental: the output of every job with a cache key is stored in the
+     * given directory, and the next schedulings replay it instead of executing the job again as long as
+     * its key does not change. Keys and values must be Serializable. Passing null disables the cache.
+     * The output of a job that failed, or skipped an unreadable input, is not stored. The partial reductions
+     * of a ReducingStrategy are stored under its reducerVariant.
+     * The pipelined and cluster executions neither use the cache nor prune it.
+     */
+    public void setCacheDirectory(Path dir) {
+        if (dir == null) {
+            this.cache = null;
+            return;
+        }
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the cache directory " + dir, e);
+        }
+        this.cache = new JobCache(dir);
+    }
+
+    /**
+     * Makes the groupings of the next schedulings keep their keys and groups in arrays of an open addressing
+     * map instead of in HashMap nodes, saving an object per key. Only the maps change: the keys still travel
+     * as objects from the jobs to the groupings.
+     */
+    public void setCompactKeyMaps(boolean compactKeyMaps) {
+        this.compactKeyMaps = compactKeyMaps;
+    }
+
+    /**
+     * Runs the next schedulings as a pipeline of stages connected by bounded queues: the given number of
+     * threads read the input of the jobs, as many compute their pairs, one thread per partition aggregates them
+     * and the output writes every partition as soon as it is reduced. Every queue holds at most queueCapacity
+     * elements, so a slow stage stops the previous ones instead of piling up their output in memory.
+     * The jobs are not cached and the pairs are never spilled in this mode,
+     * and the values of a group are in no particular order. Passing 0 readers disables the pipeline.
+     */
+    public void setPipeline(int readers, int computers, int queueCapacity) {
+        this.pipelineReaders = readers;
+        this.pipelineComputers = computers;
+        this.pipelineQueueCapacity = queueCapacity;
+    }
+
+    // the stages overlap, so their whole time is accounted to the output that drives them
+    private void runPipelined(Stream<AJob<K,V>> jobs) {
+        PipelinedEngine<K, V> pipeline = new PipelinedEngine<>(pipelineReaders, Math.max(1, pipelineComputers),
+                Math.max(1, partitions), Math.max(1, pipelineQueueCapacity));
+        BiConsumer<AJob<K,V>, Consumer<Pair<K,V>>> task = metrics.instrument((job, sink) -> job.execute(sink));
+        if (strategy instanceof ReducingStrategy) {
+            runPipelined(pipeline, jobs, task, (ReducingStrategy<K, V, ?>) strategy);
+        } else {
+            Stream<Pair<K, List<V>>> groups = pipeline.run(dispatched(jobs), task, Collectors.toList(), this::newKeyMap, null);
+            output(groups);
+        }
+    }
+
+    private <R> void runPipelined(PipelinedEngine<K, V> pipeline, Stream<AJob<K,V>> jobs,
+                                  BiConsumer<AJob<K,V>, Consumer<Pair<K,V>>> task, ReducingStrategy<K, V, R> reducing) {
+        outputReductions(reducing, pipeline.run(dispatched(jobs), task, reducing.reducer(), this::newKeyMap, reducing.outputOrder()));
+    }
+
+    /**
+     * Makes the parallel executions start a second copy of every job running more than slowdown times slower
+     * than expected from the median speed of the finished jobs and its input size, using the output of the copy
+     * succeeding first: a job fails only if both copies fail. The losing copy is not interrupted and keeps its
+     * thread until it is over. Meant for inputs on slow or uneven storage; jobs must be safe to run twice at
+     * the same time. The copies are counted by the metrics among the jobs, but only the records and input bytes
+     * of the winning copy are. A slowdown of 0 disables the copies.
+     */
+    public void setSpeculation(double slowdown) {
+        this.speculationSlowdown = slowdown;
+    }
+
+    /**
+     * Sets the order in which the parallel, pipelined and cluster executions start the jobs, FIFO by default.
+     * The output of the jobs is grouped in emission order anyway. LONGEST_FIRST on a ForkJoinPool
+     * (setParallelism) starts the most expensive jobs first and lets idle threads steal the rest.
+     */
+    public void setDispatchPolicy(DispatchPolicy dispatchPolicy) {
+        this.dispatchPolicy = dispatchPolicy;
+    }
+
+    // the jobs in dispatch order
+    private Stream<AJob<K,V>> dispatched(Stream<AJob<K,V>> jobs) {
+        if (dispatchPolicy == DispatchPolicy.FIFO)
+            return jobs;
+        List<AJob<K,V>> emitted = jobs.collect(Collectors.toList());
+        return dispatchPolicy.order(emitted).stream().map(emitted::get);
+    }
+
+    // submits the task of every job to the executor in dispatch order, copying the stragglers if speculation
+    // is on, and returns the results in emission order
+    private <R> List<Future<R>> submitAll(Stream<AJob<K,V>> jobs, Function<AJob<K,V>, R> task) {
+        List<AJob<K,V>> emitted = jobs.collect(Collectors.toList());
+        List<Future<R>> results = new ArrayList<>(Collections.nCopies(emitted.size(), null));
+        SpeculativeExecution speculation = speculationSlowdown <= 0 ? null
+                : new SpeculativeExecution(executor, speculationSlowdown, metrics);
+        for (int i : dispatchPolicy.order(emitted)) {
+            AJob<K,V> job = emitted.get(i);
+            results.set(i, speculation == null ? executor.submit(() -> task.apply(job)) : speculation.submit(job, task));
+        }
+        if (speculation != null)
+            speculation.watch();
+        return results;
+    }
+
+    /**
+     * Runs the next schedulings on the workers of the given cluster, null to go back to this JVM.
+     * Every worker executes the jobs it asks for and reduces a partition of the keys, the output merges the
+     * partitions. Jobs, keys, values and the accumulations of the reducer must be Serializable, and so must be
+     * a ReducingStrategy, since the workers reduce with a copy of it. The executor, the cache, the spilling
+     * and the codecs are not used in this mode, and the metrics only time the phases.
+     */
+    public void setCluster(Cluster cluster) {
+        this.cluster = cluster;
+    }
+
+    // the jobs and the reduction run on the workers, so only the emission and the output run here
+    private void runClustered(Stream<AJob<K,V>> jobs) {
+        if (strategy instanceof ReducingStrategy) {
+            runClustered((ReducingStrategy<K, V, ?>) strategy, jobs);
+        } else {
+            Stream<Pair<K, List<V>>> groups = metrics.time(Phase.COLLECT, () -> cluster.run(dispatched(jobs), null, null));
+            output(groups);
+        }
+    }
+
+    private <R> void runClustered(ReducingStrategy<K, V, R> reducing, Stream<AJob<K,V>> jobs) {
+        outputReductions(reducing, metrics.time(Phase.COLLECT, () -> cluster.run(dispatched(jobs), reducing, reducing.outputOrder())));
+    }
+
+    /**
+     * Keeps the intermediate pairs of the parallel executions encoded with the given codecs, in off-heap
+     * segments of 64 KB, while they wait to be grouped, instead of as Pair objects. With a reducing strategy
+     * the jobs then hand over their pairs as they are, encoded, and every group accumulates them,
+     * instead of shrinking the output of every job to one partial reduction per key.
+     * The context reuses up to 256 segments between the runs, until the codecs are reset or it is closed.
+     * The pipelined and cluster executions do not use it. Passing null codecs goes back to objects.
+     */
+    public void setCodecs(Codec<K> keyCodec, Codec<V> valueCodec) {
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        if (segmentPool != null)
+            segmentPool.clear();
+        this.segmentPool = keyCodec == null || valueCodec == null ? null : new EncodedPairBuffer.Pool(MAX_POOLED_SEGMENTS);
+    }
+
+    // the pairs are encoded only where they wait in buffers, that is by the parallel executions
+    private boolean encoded() {
+        return segmentPool != null && executor != null;
+    }
+
+    private PairBuffer<Pair<K,V>> pairBuffer() {
+        if (segmentPool == null)
+            return PairBuffer.ofObjects();
+        return new EncodedPairBuffer<>(keyCodec, valueCodec, segmentPool);
+    }
+
+    // the map of every grouping by key
+    private <T> Map<K, T> newKeyMap() {
+        return compactKeyMaps ? new KeyDictionary<>() : new HashMap<>();
+    }
+
+    // the task of the jobs, replayed from the cache if there is one, and measured
+    private <T extends Pair<K, ?>> BiConsumer<AJob<K,V>, Consumer<T>> cached(BiConsumer<AJob<K,V>, Consumer<T>> task, String variant) {
+        return metrics.instrument(cache == null ? task : cache.cached(task, variant));
+    }
+
+    private <T extends Pair<K, ?>, R> Stream<R> reduce(Stream<AJob<K,V>> jobs,
+                                                     BiConsumer<AJob<K,V>, Consumer<T>> task,
+                                                     Supplier<PairBuffer<T>> buffers,
+                                                     Function<Stream<T>, Stream<R>> grouping,
+                                                     Comparator<? super R> order) {
+        Function<Stream<T>, Stream<R>> reducer = spilling(grouping);
+        return metrics.time(Phase.COLLECT, () -> shuffle(jobs, task, buffers, reducer, order));
+    }
+
+    // the grouping, through the disk if the pairs exceed the memory budget
+    private <T extends Pair<K, ?>, R> Function<Stream<T>, Stream<R>> spilling(Function<Stream<T>, Stream<R>> grouping) {
+        return maxBufferedPairs <= 0 ? grouping
+                : pairs -> new SpillingGrouper<K, T>(maxBufferedPairs, keyOrder).group(pairs, grouping);
+    }
+
+    private <T extends Pair<K, ?>, R> Stream<R> shuffle(Stream<AJob<K,V>> jobs,
+                                                      BiConsumer<AJob<K,V>, Consumer<T>> task,
+                                                      Supplier<PairBuffer<T>> buffers,
+                                                      Function<Stream<T>, Stream<R>> reducer,
+                                                      Comparator<? super R> order) {
+        if (executor == null || partitions < 2)
+            return sorted(reducer.apply(compute(jobs, task, buffers)), order);
+        PartitionedShuffle<K, T> shuffle = new PartitionedShuffle<>(partitions, buffers);
+        // every job routes its own pairs, so the shuffle runs on all the threads of the executor,
+        // and the routed pairs of a job are added once, even if the job ran twice
+        List<Future<List<PairBuffer<T>>>> routed = submitAll(jobs, job -> shuffle.route(sink -> task.accept(job, sink)));
+        routed.forEach(batches -> shuffle.publish(join(batches)));
+        return shuffle.reduce(executor, reducer, order);
+    }
+
+    // a single partition has nothing to merge with, it is just sorted
+    private static <R> Stream<R> sorted(Stream<R> results, Comparator<? super R> order) {
+        return order == null ? results : results.sorted(order);
+    }
+
+    // the task pushes the output of a job into the given sink
+    private <T> Stream<T> compute(Stream<AJob<K,V>> jobs, BiConsumer<AJob<K,V>, Consumer<T>> task, Supplier<PairBuffer<T>> buffers) {
+        if (executor == null)
+            return jobs.mapMulti(task); // every pair goes straight to the grouping, without buffering a job
+        // submit every job before waiting for any of them, then concatenate the results
+        // in emission order so that the grouped lists are the same of the sequential run
+        List<Future<PairBuffer<T>>> results = submitAll(jobs, job -> {
+            PairBuffer<T> output = buffers.get();
+            task.accept(job, output);
+            return output;
+        });
+        return results.stream().flatMap(result -> join(result).stream());
+    }
+
+    static <T> T join(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a job", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Job failed: " + e.getCause().getMessage(), e.getCause());
+        }
     }
 
     private Stream<Pair<K, List<V>>> collect(Stream<Pair<K,V>> pairs) {
         return pairs
-                .collect(Collectors.groupingBy(Pair::getKey, Collectors.mapping(Pair::getValue, Collectors.toList())))
+                .collect(Collectors.groupingBy(Pair::getKey, this::newKeyMap, Collectors.mapping(Pair::getValue, Collectors.toList())))
                 .entrySet().stream()
                 .map(entry -> new Pair<>(entry.getKey(), entry.getValue()));
     }
-}
\ No newline at end of file
+
+    private <R> void outputReduced(ReducingStrategy<K, V, R> reducing, Stream<AJob<K,V>> jobs) {
+        if (reducing.hasPartitionedOutput() && executor != null && partitions >= 2)
+            outputPartitions(reducing, reducing.reducer(), jobs);
+        else
+            outputReductions(reducing, reduce(jobs, reducing, reducing.reducer(), reducing.outputOrder()));
+    }
+
+    // the reductions of an execution, all in one stream
+    private <R> void outputReductions(ReducingStrategy<K, V, R> reducing, Stream<Pair<K, R>> reductions) {
+        Stream<Pair<K, R>> counted = reductions.peek(reduction -> metrics.keyOutput());
+        metrics.time(Phase.OUTPUT, () -> {
+            try (reductions) {
+                if (reducing.hasPartitionedOutput()) {
+                    reducing.outputPartition(0, counted);
+                    reducing.outputPartitionsDone(1);
+                } else {
+                    reducing.outputReduced(counted);
+                }
+            }
+        });
+    }
+
+    // every partition is merged, finished and output by its own task, so the output runs in parallel too
+    private <A, R> void outputPartitions(ReducingStrategy<K, V, R> reducing, Collector<V, A, R> reducer, Stream<AJob<K,V>> jobs) {
+        if (encoded())
+            outputPartitions(reducing, jobs, cached((job, sink) -> job.execute(sink), "pairs"), this::pairBuffer, accumulating(reducer));
+        else
+            outputPartitions(reducing, jobs, cached(accumulation(reducing, reducer), variant(reducing)), PairBuffer::ofObjects, finishing(reducer));
+    }
+
+    private <T extends Pair<K, ?>, R> void outputPartitions(ReducingStrategy<K, V, R> reducing, Stream<AJob<K,V>> jobs,
+                                                           BiConsumer<AJob<K,V>, Consumer<T>> task,
+                                                           Supplier<PairBuffer<T>> buffers,
+                                                           Function<Stream<T>, Stream<Pair<K, R>>> grouping) {
+        PartitionedShuffle<K, T> shuffle = new PartitionedShuffle<>(partitions, buffers);
+        metrics.time(Phase.COLLECT, () -> submitAll(jobs, job -> shuffle.route(sink -> task.accept(job, sink)))
+                .forEach(batches -> shuffle.publish(join(batches))));
+        Function<Stream<T>, Stream<Pair<K, R>>> reduce = spilling(grouping);
+        metrics.time(Phase.OUTPUT, () -> {
+            shuffle.forEachPartition(executor, (partition, index) -> {
+                try (Stream<Pair<K, R>> reductions = reduce.apply(partition)) {
+                    reducing.outputPartition(index, sorted(reductions, reducing.outputOrder()).peek(reduction -> metrics.keyOutput()));
+                }
+            });
+            reducing.outputPartitionsDone(partitions);
+        });
+    }
+
+    private String variant(ReducingStrategy<K, V, ?> reducing) {
+        return "reduced by " + reducing.reducerVariant();
+    }
+
+    // every job accumulates its values in one partial reduction per key, the partial reductions
+    // of all the jobs are then merged by key and finished; with the codecs the encoded pairs of
+    // the jobs are accumulated by key instead
+    private <A, R> Stream<Pair<K, R>> reduce(Stream<AJob<K,V>> jobs, ReducingStrategy<K, V, R> reducing,
+                                             Collector<V, A, R> reducer, Comparator<? super Pair<K, R>> order) {
+        if (encoded())
+            return reduce(jobs, cached((job, sink) -> job.execute(sink), "pairs"), this::pairBuffer, accumulating(reducer), order);
+        return reduce(jobs, cached(accumulation(reducing, reducer), variant(reducing)), PairBuffer::ofObjects, finishing(reducer), order);
+    }
+
+    // the LongValueJobs of a LongReducingStrategy accumulate in a table of longs, their partial reductions
+    // are the long[1] of its reducer
+    @SuppressWarnings("unchecked")
+    private <A> BiConsumer<AJob<K,V>, Consumer<Pair<K, A>>> accumulation(ReducingStrategy<K, V, ?> reducing, Collector<V, A, ?> reducer) {
+        BiConsumer<AJob<K,V>, Consumer<Pair<K, A>>> boxed = accumulation(reducer);
+        if (!(reducing instanceof LongReducingStrategy))
+            return boxed;
+        LongBinaryOperator operator = ((LongReducingStrategy<K>) reducing).operator();
+        long identity = ((LongReducingStrategy<K>) reducing).identity();
+        return (job, sink) -> {
+            if (!(job instanceof LongValueJob)) {
+                boxed.accept(job, sink);
+                return;
+            }
+            LongKeyTable<K> partials = new LongKeyTable<>(operator, identity);
+            ((LongValueJob<K>) (AJob<K, ?>) job).executeLong(partials::accumulate);
+            partials.forEach((key, partial) -> sink.accept(new Pair<>(key, (A) new long[]{partial})));
+        };
+    }
+
+    private <A> BiConsumer<AJob<K,V>, Consumer<Pair<K, A>>> accumulation(Collector<V, A, ?> reducer) {
+        Supplier<A> supplier = reducer.supplier();
+        BiConsumer<A, V> accumulator = reducer.accumulator();
+        return (job, sink) -> {
+            Map<K, A> partials = newKeyMap();
+            job.execute(pair -> accumulator.accept(partials.computeIfAbsent(pair.getKey(), key -> supplier.get()), pair.getValue()));
+            partials.forEach((key, partial) -> sink.accept(new Pair<>(key, partial)));
+        };
+    }
+
+    private <A, R> Function<Stream<Pair<K, A>>, Stream<Pair<K, R>>> finishing(Collector<V, A, R> reducer) {
+        BinaryOperator<A> combiner = reducer.combiner();
+        Function<A, R> finisher = reducer.finisher();
+        return partials -> {
+            Map<K, A> reductions = newKeyMap();
+            partials.forEach(partial -> reductions.merge(partial.getKey(), partial.getValue(), combiner));
+            return reductions.entrySet().stream()
+                    .map(entry -> new Pair<>(entry.getKey(), finisher.apply(entry.getValue())));
+        };
+    }
+
+    private <A, R> Function<Stream<Pair<K, V>>, Stream<Pair<K, R>>> accumulating(Collector<V, A, R> reducer) {
+        Supplier<A> supplier = reducer.supplier();
+        BiConsumer<A, V> accumulator = reducer.accumulator();
+        Function<A, R> finisher = reducer.finisher();
+        return pairs -> {
+            Map<K, A> reductions = newKeyMap();
+            pairs.forEach(pair -> accumulator.accept(reductions.computeIfAbsent(pair.getKey(), key -> supplier.get()), pair.getValue()));
+            return reductions.entrySet().stream()
+                    .map(entry -> new Pair<>(entry.getKey(), finisher.apply(entry.getValue())));
+        };
+    }
+}
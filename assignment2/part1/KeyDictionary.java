@@ -0,0 +1,213 @@
+package part1;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Compact map of the groupings: every distinct key gets a dense int id the first time it is seen,
+ * and keys, hashes and values live in plain arrays indexed by that id.
+ * The lookup is an open addressing table of ints, so there is no node object per entry as in a HashMap.
+ * Removing a key gives its id to the last key added, null keys and null values are not supported.
+ */
+class KeyDictionary<K, V> extends AbstractMap<K, V> {
+    private static final int EMPTY = -1;
+
+    // slot -> id of the key in that slot, EMPTY if none
+    private int[] table = newTable(16);
+    private Object[] keys = new Object[8];
+    private int[] hashes = new int[8];
+    private Object[] values = new Object[8];
+    private int size;
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // the slot of the key, or the empty slot where it would go
+    private int slotOf(Object key, int h) {
+        int mask = table.length - 1;
+        int slot = h & mask;
+        for (; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int id = table[slot];
+            if (hashes[id] == h && keys[id].equals(key))
+                return slot;
+        }
+        return slot;
+    }
+
+    /** Returns the id of the key, or EMPTY if the key was never added. */
+    int idOf(Object key) {
+        return table[slotOf(key, hash(key))];
+    }
+
+    /** Returns the id of the key, adding it with a null value if it is missing. */
+    int add(K key) {
+        int h = hash(key);
+        int slot = slotOf(key, h);
+        if (table[slot] != EMPTY)
+            return table[slot];
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int id = size++;
+        keys[id] = key;
+        hashes[id] = h;
+        table[slot] = id;
+        if (size * 2 > table.length)
+            rehash();
+        return id;
+    }
+
+    private void rehash() {
+        table = newTable(table.length * 2);
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != EMPTY)
+                slot = (slot + 1) & mask;
+            table[slot] = id;
+        }
+    }
+
+    // empties the slot of the key, shifting back the keys probed past it, and moves the last key into its id
+    private void remove(int slot) {
+        int id = table[slot];
+        int mask = table.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; table[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hashes[table[next]] & mask;
+            // a key can fill the hole only if the hole lies between its home slot and its slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = EMPTY;
+        int last = --size;
+        if (id != last) {
+            table[slotOf(keys[last], hashes[last])] = id;
+            keys[id] = keys[last];
+            hashes[id] = hashes[last];
+            values[id] = values[last];
+        }
+        keys[last] = null;
+        values[last] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    K key(int id) {
+        return (K) keys[id];
+    }
+
+    @SuppressWarnings("unchecked")
+    V value(int id) {
+        return (V) values[id];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return idOf(key) != EMPTY;
+    }
+
+    @Override
+    public V get(Object key) {
+        int id = idOf(key);
+        return id == EMPTY ? null : value(id);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        int id = add(key);
+        V previous = value(id);
+        values[id] = Objects.requireNonNull(value);
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        int slot = slotOf(key, hash(key));
+        if (table[slot] == EMPTY)
+            return null;
+        V previous = value(table[slot]);
+        remove(slot);
+        return previous;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int id = idOf(key);
+        if (id != EMPTY)
+            return value(id);
+        V value = mappingFunction.apply(key);
+        if (value != null)
+            put(key, value);
+        return value;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        int slot = slotOf(key, hash(key));
+        if (table[slot] == EMPTY) {
+            put(key, value);
+            return value;
+        }
+        V merged = remappingFunction.apply(value(table[slot]), value);
+        if (merged == null)
+            remove(slot);
+        else
+            values[table[slot]] = merged;
+        return merged;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (next >= size)
+                            throw new NoSuchElementException();
+                        int id = next++;
+                        return new SimpleEntry<>(key(id), value(id)) {
+                            @Override
+                            public V setValue(V value) {
+                                values[id] = value;
+                                return super.setValue(value);
+                            }
+                        };
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
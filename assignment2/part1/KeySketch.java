@@ -0,0 +1,155 @@
+package part1;
+
+import part1.aux_files.Pair;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+/**
+ * Approximate summary of (key, value) pairs in a fixed amount of memory: the count of every key
+ * (Count-Min sketch), the number of distinct keys (HyperLogLog), and the keys with the largest counts
+ * (heavy hitters) with the number of their distinct values (one HyperLogLog each).
+ * Candidates for the heavy hitters are tracked CANDIDATES_PER_HEAVY_HITTER times as many as those reported:
+ * a key becomes a candidate when its estimated count exceeds the smallest one of the candidates, which it replaces,
+ * so that a key large overall but never among the very largest of a single job still survives the merges.
+ * Only the values added since a key became a candidate are counted as its distinct values: for a key admitted
+ * late, or evicted and admitted again, the number of distinct values is underestimated.
+ * Summaries with the same settings can be merged, so each job and partition can build its own.
+ */
+public final class KeySketch<K> implements Serializable {
+    private static final int CANDIDATES_PER_HEAVY_HITTER = 8;
+
+    private final CountMinSketch counts;
+    private final HyperLogLog keys;
+    private final double distinctError;
+    private final int heavyHitters;
+    private final int maxCandidates;
+    private final Map<K, HyperLogLog> candidates = new HashMap<>();
+    // one entry per candidate, by the estimated count at the time it was pushed: counts only grow,
+    // so an entry may be stale but never too large, and it is refreshed when it reaches the head
+    private transient PriorityQueue<Candidate<K>> smallest;
+
+    /**
+     * The count of a key is overestimated by at most epsilon times the total count with probability 1 - delta;
+     * the distinct counts have the given relative error. The heavyHitters keys with the largest counts are tracked.
+     */
+    public KeySketch(double epsilon, double delta, double distinctError, int heavyHitters) {
+        this.counts = new CountMinSketch(epsilon, delta);
+        this.keys = new HyperLogLog(distinctError);
+        this.distinctError = distinctError;
+        this.heavyHitters = heavyHitters;
+        this.maxCandidates = Math.max(1, heavyHitters) * CANDIDATES_PER_HEAVY_HITTER;
+    }
+
+    /** Collector summarizing pairs, for a ReducingStrategy. */
+    public static <K, V> Collector<Pair<K, V>, KeySketch<K>, KeySketch<K>> collector(double epsilon, double delta,
+                                                                                 double distinctError, int heavyHitters) {
+        return Collector.of(() -> new KeySketch<>(epsilon, delta, distinctError, heavyHitters),
+                (sketch, pair) -> sketch.add(pair.getKey(), pair.getValue()),
+                KeySketch::merge,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public void add(K key, Object value) {
+        counts.add(key, 1);
+        keys.add(key);
+        HyperLogLog distinct = candidates.get(key);
+        if (distinct == null)
+            distinct = admit(key, counts.estimate(key));
+        if (distinct != null)
+            distinct.add(value);
+    }
+
+    // makes the key a candidate if its count is among the largest, returning its distinct values
+    private HyperLogLog admit(K key, long count) {
+        PriorityQueue<Candidate<K>> heap = smallest();
+        if (candidates.size() >= maxCandidates) {
+            Candidate<K> head = freshHead(heap);
+            if (head.count() >= count)
+                return null;
+            heap.poll();
+            candidates.remove(head.key());
+        }
+        HyperLogLog distinct = new HyperLogLog(distinctError);
+        candidates.put(key, distinct);
+        heap.add(new Candidate<>(key, count));
+        return distinct;
+    }
+
+    // the candidate with the smallest count, refreshing the stale entries on the way
+    private Candidate<K> freshHead(PriorityQueue<Candidate<K>> heap) {
+        while (true) {
+            Candidate<K> head = heap.peek();
+            long count = counts.estimate(head.key());
+            if (count == head.count())
+                return head;
+            heap.poll();
+            heap.add(new Candidate<>(head.key(), count));
+        }
+    }
+
+    private PriorityQueue<Candidate<K>> smallest() {
+        if (smallest == null) {
+            smallest = new PriorityQueue<>(Math.max(1, candidates.size()), Comparator.comparingLong(Candidate::count));
+            candidates.keySet().forEach(key -> smallest.add(new Candidate<>(key, counts.estimate(key))));
+        }
+        return smallest;
+    }
+
+    /** Adds the pairs summarized by the other sketch, which must have the same settings, to this one. */
+    public KeySketch<K> merge(KeySketch<K> other) {
+        counts.merge(other.counts);
+        keys.merge(other.keys);
+        other.candidates.forEach((key, distinct) -> candidates.merge(key, distinct, (left, right) -> {
+            left.merge(right);
+            return left;
+        }));
+        // back to the largest candidates by the merged counts
+        smallest = null;
+        PriorityQueue<Candidate<K>> heap = smallest();
+        while (candidates.size() > maxCandidates)
+            candidates.remove(heap.poll().key());
+        return this;
+    }
+
+    public long totalCount() {
+        return counts.total();
+    }
+
+    public long estimateCount(K key) {
+        return counts.estimate(key);
+    }
+
+    public long estimateDistinctKeys() {
+        return keys.estimate();
+    }
+
+    /**
+     * The heavy hitters, the candidates with the largest estimated counts, from the largest,
+     * ties by the text of the key.
+     */
+    public List<Estimate<K>> heavyHitters() {
+        List<Estimate<K>> estimates = new ArrayList<>(candidates.size());
+        candidates.forEach((key, distinct) -> estimates.add(new Estimate<>(key, counts.estimate(key), distinct.estimate())));
+        estimates.sort(Comparator.comparingLong((Estimate<K> estimate) -> estimate.count()).reversed()
+                .thenComparing(estimate -> String.valueOf(estimate.key())));
+        return estimates.size() > heavyHitters ? new ArrayList<>(estimates.subList(0, heavyHitters)) : estimates;
+    }
+
+    /**
+     * Estimated count and number of distinct values of a key. The distinct values are only those added
+     * since the key became a candidate, a lower bound up to the error of the HyperLogLog.
+     */
+    public record Estimate<K>(K key, long count, long distinctValues) {
+    }
+
+    // a candidate with its estimated count when pushed on the heap
+    private record Candidate<K>(K key, long count) {
+    }
+}
@@ -0,0 +1,38 @@
+package part1;
+
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Reduction of long values per key without boxing: the keys get dense ids from a KeyDictionary
+ * and the reductions live in a long[] indexed by those ids. Not thread-safe, one table per job.
+ */
+class LongKeyTable<K> {
+    private final KeyDictionary<K, Void> ids = new KeyDictionary<>();
+    private final LongBinaryOperator operator;
+    private final long identity;
+    private long[] values = new long[64];
+
+    LongKeyTable(LongBinaryOperator operator, long identity) {
+        this.operator = operator;
+        this.identity = identity;
+    }
+
+    void accumulate(K key, long value) {
+        int size = ids.size();
+        int id = ids.add(key);
+        if (id == size) {
+            if (id == values.length)
+                values = Arrays.copyOf(values, id * 2);
+            values[id] = identity;
+        }
+        values[id] = operator.applyAsLong(values[id], value);
+    }
+
+    /** The keys in the order they were first accumulated, with their reductions. */
+    void forEach(ObjLongConsumer<K> action) {
+        for (int id = 0; id < ids.size(); id++)
+            action.accept(ids.key(id), values[id]);
+    }
+}
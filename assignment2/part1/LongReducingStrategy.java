@@ -0,0 +1,35 @@
+package part1;
+
+import java.util.function.LongBinaryOperator;
+import java.util.stream.Collector;
+
+/**
+ * ReducingStrategy of long values, reduced by an associative operator from its identity (a sum by default).
+ * The values of the LongValueJobs are accumulated per job in a table of primitive longs, the boxed Long
+ * of a key is created only when its reduction is output.
+ * The reducer follows from the operator and must not be overridden.
+ */
+public interface LongReducingStrategy<K> extends ReducingStrategy<K, Long, Long> {
+
+    default LongBinaryOperator operator() {
+        return Long::sum;
+    }
+
+    default long identity() {
+        return 0;
+    }
+
+    // the partial reduction of a key is a long[1], the same the scheduler builds for the LongValueJobs
+    @Override
+    default Collector<Long, long[], Long> reducer() {
+        LongBinaryOperator operator = operator();
+        long identity = identity();
+        return Collector.of(() -> new long[]{identity},
+                (partial, value) -> partial[0] = operator.applyAsLong(partial[0], value),
+                (left, right) -> {
+                    left[0] = operator.applyAsLong(left[0], right[0]);
+                    return left;
+                },
+                partial -> partial[0]);
+    }
+}
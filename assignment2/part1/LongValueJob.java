@@ -0,0 +1,38 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Job whose values are longs, emitted as (key, long) without boxing them or creating a Pair.
+ * With a LongReducingStrategy the scheduler accumulates the values of a job straight into a long per key;
+ * anywhere else the job works as an AJob of Long values, boxing every pair.
+ */
+public abstract class LongValueJob<K> extends AJob<K, Long> {
+
+    /** Receives the (key, value) pairs of a job. */
+    @FunctionalInterface
+    public interface Sink<K> {
+        void accept(K key, long value);
+    }
+
+    /** Hands every pair to the sink as soon as it is produced. */
+    public abstract void executeLong(Sink<? super K> sink);
+
+    @Override
+    public void execute(Consumer<? super Pair<K, Long>> sink) {
+        executeLong((key, value) -> sink.accept(new Pair<>(key, value)));
+    }
+
+    @Override
+    public Stream<Pair<K, Long>> execute() {
+        List<Pair<K, Long>> workingList = new ArrayList<>();
+        execute(workingList::add);
+        return workingList.stream();
+    }
+}
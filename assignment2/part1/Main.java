@@ -4,7 +4,8 @@ public class Main {
 
     public static void main(String[] args) {
         CountAnagramsStrategy countAnagramsStrategy = new CountAnagramsStrategy();
-        JobSchedulerContext<String, String> jobSchedulingContext = new JobSchedulerContext<>(countAnagramsStrategy);
-        jobSchedulingContext.runScheduling();
+        try (JobSchedulerContext<String, String> jobSchedulingContext = new JobSchedulerContext<>(countAnagramsStrategy)) {
+            jobSchedulingContext.runScheduling();
+        }
     }
 }
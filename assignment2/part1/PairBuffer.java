@@ -0,0 +1,40 @@
+package part1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Intermediate pairs buffered between the jobs producing them and the grouping consuming them.
+ * The pairs are added by a single thread, and then read once.
+ */
+interface PairBuffer<T> extends Consumer<T> {
+
+    boolean isEmpty();
+
+    /** The buffered pairs in insertion order. Closing the stream releases the buffer, which cannot be read again. */
+    Stream<T> stream();
+
+    /** Buffer keeping the pairs as they are, in a list. */
+    static <T> PairBuffer<T> ofObjects() {
+        return new PairBuffer<>() {
+            private final List<T> pairs = new ArrayList<>();
+
+            @Override
+            public void accept(T pair) {
+                pairs.add(pair);
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return pairs.isEmpty();
+            }
+
+            @Override
+            public Stream<T> stream() {
+                return pairs.stream();
+            }
+        };
+    }
+}
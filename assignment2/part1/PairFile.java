@@ -0,0 +1,93 @@
+package part1;
+
+import part1.aux_files.Pair;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * File of serialized pairs, used to keep intermediate pairs on disk or to send them to another JVM.
+ * Keys and values must be Serializable.
+ */
+class PairFile {
+    // the stream is reset after this many pairs, otherwise it would keep all of them referenced
+    private static final int RESET_INTERVAL = 1024;
+
+    private PairFile() {
+    }
+
+    static void write(Path file, Iterable<? extends Pair<?, ?>> pairs) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            write(out, pairs);
+        }
+    }
+
+    /** Writes the pairs in the same format to a stream, which is flushed but left open. */
+    static void write(ObjectOutputStream out, Iterable<? extends Pair<?, ?>> pairs) throws IOException {
+        int written = 0;
+        for (Pair<?, ?> pair : pairs) {
+            out.writeObject(pair.getKey());
+            out.writeObject(pair.getValue());
+            if (++written % RESET_INTERVAL == 0)
+                out.reset();
+        }
+        out.writeObject(null); // end of the pairs
+        out.flush();
+    }
+
+    /** Reads back the pairs of a file, or of a stream, closing it after the last one. */
+    static class Reader<T extends Pair<?, ?>> implements Iterator<T>, Closeable {
+        private final ObjectInputStream in;
+        private T next;
+
+        Reader(Path file) throws IOException {
+            this(new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file))));
+        }
+
+        Reader(ObjectInputStream in) {
+            this.in = in;
+            read();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void read() {
+            try {
+                Object key = in.readObject();
+                if (key == null) {
+                    next = null;
+                    in.close();
+                } else {
+                    next = (T) new Pair<>(key, in.readObject());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read a stored pair", e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Cannot read a stored pair", e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            T current = next;
+            read();
+            return current;
+        }
+
+        /** Closes the stream before the last pair. */
+        @Override
+        public void close() throws IOException {
+            next = null;
+            in.close();
+        }
+    }
+}
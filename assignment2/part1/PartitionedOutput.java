@@ -0,0 +1,127 @@
+package part1;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Text output written as one file per reducer partition (part-00000, part-00001, ...), so that the partitions
+ * can be written at the same time, and then optionally joined into a single file.
+ * Lines are encoded in UTF-8 straight into a large direct buffer and written through a FileChannel.
+ */
+class PartitionedOutput {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private PartitionedOutput() {
+    }
+
+    static Path partFile(Path dir, int partition) {
+        return dir.resolve(String.format(Locale.ROOT, "part-%05d", partition));
+    }
+
+    /** Writes the lines to the file, replacing it. */
+    static void write(Path file, Stream<String> lines) throws IOException {
+        try (LineChannel out = new LineChannel(file)) {
+            Iterator<String> it = lines.iterator();
+            while (it.hasNext())
+                out.println(it.next());
+        }
+    }
+
+    /** Writes the parts one after the other to the file, copied by the channels without decoding them. */
+    static void concatenate(List<Path> parts, Path file) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    for (long position = 0; position < size; )
+                        position += in.transferTo(position, size - position, out);
+                }
+            }
+        }
+    }
+
+    /** Merges the lines of parts sorted by the given order into a single file sorted by it. */
+    static void merge(List<Path> parts, Path file, Comparator<String> order) throws IOException {
+        List<BufferedReader> readers = new ArrayList<>(parts.size());
+        try {
+            List<Iterator<String>> runs = new ArrayList<>(parts.size());
+            for (Path part : parts) {
+                BufferedReader reader = Files.newBufferedReader(part, StandardCharsets.UTF_8);
+                readers.add(reader);
+                runs.add(reader.lines().iterator());
+            }
+            write(file, PartitionedShuffle.merge(runs, order));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (BufferedReader reader : readers)
+                reader.close();
+        }
+    }
+
+    // writes encoded lines through a direct buffer, draining it to the channel whenever it is full
+    private static class LineChannel implements Closeable {
+        private static final CharBuffer NEW_LINE = CharBuffer.wrap(System.lineSeparator());
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // as a PrintWriter, chars that cannot be encoded become '?'
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        LineChannel(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void println(String line) throws IOException {
+            encode(CharBuffer.wrap(line));
+            encode(NEW_LINE.duplicate());
+        }
+
+        private void encode(CharBuffer chars) throws IOException {
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isUnderflow())
+                    break;
+                if (result.isOverflow())
+                    drain();
+                else
+                    result.throwException();
+            }
+            encoder.reset();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                drain();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package part1;
+
+import part1.aux_files.Pair;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Routes the intermediate pairs into independent partitions by the hash of their key, so that every
+ * partition can be reduced on its own thread. Pairs with the same key always end up in the same partition.
+ * Adding is lock-free: every caller splits its pairs into private batches, one per partition,
+ * and then appends each batch to the concurrent queue of its partition. The batches are PairBuffers,
+ * so the pairs can wait for the reduction encoded instead of as objects.
+ */
+class PartitionedShuffle<K, T extends Pair<K, ?>> {
+    private final List<Queue<PairBuffer<T>>> partitions;
+    private final Supplier<PairBuffer<T>> buffers;
+
+    PartitionedShuffle(int partitions, Supplier<PairBuffer<T>> buffers) {
+        this.buffers = buffers;
+        this.partitions = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++)
+            this.partitions.add(new ConcurrentLinkedQueue<>());
+    }
+
+    int partitionOf(K key) {
+        return partitionOf(key, partitions.size());
+    }
+
+    /** Partition of the key among the given number of partitions, the same in every JVM if the key hashCode is. */
+    static int partitionOf(Object key, int partitions) {
+        int h = key.hashCode();
+        // spread the high bits, as HashMap does, before taking the modulo
+        return Math.floorMod(h ^ (h >>> 16), partitions);
+    }
+
+    /** Splits the pairs that the producer pushes into the given sink in one batch per partition, without adding them. */
+    List<PairBuffer<T>> route(Consumer<Consumer<T>> producer) {
+        List<PairBuffer<T>> batches = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++)
+            batches.add(buffers.get());
+        producer.accept(pair -> batches.get(partitionOf(pair.getKey())).accept(pair));
+        return batches;
+    }
+
+    /** Adds the batches returned by route to their partitions. Safe to be called concurrently. */
+    void publish(List<PairBuffer<T>> batches) {
+        for (int i = 0; i < partitions.size(); i++)
+            if (!batches.get(i).isEmpty())
+                partitions.get(i).add(batches.get(i));
+    }
+
+    /**
+     * Reduces every partition in its own task on the executor and returns the results
+     * of all the partitions one after the other. With an order, every task also sorts the results
+     * of its partition, and the sorted partitions are merged into a single sorted stream.
+     */
+    <R> Stream<R> reduce(ExecutorService executor, Function<Stream<T>, Stream<R>> reducer, Comparator<? super R> order) {
+        List<Future<List<R>>> results = partitions.stream()
+                .map(partition -> executor.submit(() -> {
+                    List<R> result;
+                    try (Stream<R> reduced = reducer.apply(partition.stream().flatMap(PairBuffer::stream))) {
+                        result = reduced.collect(Collectors.toList());
+                    }
+                    if (order != null)
+                        result.sort(order);
+                    return result;
+                }))
+                .collect(Collectors.toList());
+        if (order != null)
+            return merge(results.stream().map(result -> JobSchedulerContext.join(result).iterator()).collect(Collectors.toList()), order);
+        return results.stream().flatMap(result -> JobSchedulerContext.join(result).stream());
+    }
+
+    /** Gives every partition, with its number, to the action in its own task on the executor, and waits for all of them. */
+    void forEachPartition(ExecutorService executor, BiConsumer<Stream<T>, Integer> action) {
+        List<Future<?>> done = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            Queue<PairBuffer<T>> partition = partitions.get(i);
+            int index = i;
+            done.add(executor.submit(() -> action.accept(partition.stream().flatMap(PairBuffer::stream), index)));
+        }
+        done.forEach(JobSchedulerContext::join);
+    }
+
+    /** Lazily merges runs sorted by the given order, taking every time the smallest of their heads. */
+    static <R> Stream<R> merge(List<Iterator<R>> runs, Comparator<? super R> order) {
+        PriorityQueue<Head<R>> heads = new PriorityQueue<>((left, right) -> order.compare(left.value, right.value));
+        for (Iterator<R> run : runs)
+            if (run.hasNext())
+                heads.add(new Head<>(run.next(), run));
+        Iterator<R> merged = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public R next() {
+                Head<R> head = heads.poll();
+                if (head == null)
+                    throw new NoSuchElementException();
+                R value = head.value;
+                if (head.run.hasNext())
+                    heads.add(new Head<>(head.run.next(), head.run));
+                return value;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false);
+    }
+
+    // the smallest value of a run not merged yet, with the rest of the run
+    private static class Head<R> {
+        private final R value;
+        private final Iterator<R> run;
+
+        Head(R value, Iterator<R> run) {
+            this.value = value;
+            this.run = run;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs a scheduling as a pipeline of concurrent stages connected by bounded queues:
+ * emitting the jobs, reading their input (AJob.load), computing the pairs, aggregating them in partitions
+ * by the hash of the key and finally the output, which consumes the partitions as soon as they are reduced.
+ * When a stage is slower than the previous one its queue fills up and the previous stage waits,
+ * so the data in flight never exceeds the capacity of the queues.
+ * Closing the stream of the output before its end interrupts the stages still running, and so does
+ * the failure of any stage, which is then thrown to the output.
+ */
+class PipelinedEngine<K, V> {
+    // the pairs travel from the compute stage to the aggregation stage in batches of this size
+    private static final int BATCH_SIZE = 1024;
+
+    private final int readers;
+    private final int computers;
+    private final int partitions;
+    private final int queueCapacity;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final List<Thread> stages = new ArrayList<>();
+    private volatile boolean cancelled;
+    // wakes the output waiting for the stages, once they are stopped by a failure
+    private Runnable wakeOutput = () -> { };
+
+    PipelinedEngine(int readers, int computers, int partitions, int queueCapacity) {
+        this.readers = readers;
+        this.computers = computers;
+        this.partitions = partitions;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Starts the pipeline on the jobs and returns the reduction of every key. The stream is fed by the
+     * aggregation stage, and consuming it is the output stage: it must be consumed till the end.
+     * With an order, every aggregation thread sorts its partition and the output merges the sorted partitions,
+     * starting once all of them are sorted. The first failure of any stage, emitting included, stops all
+     * the stages and is thrown by the stream, or by run itself with an order.
+     */
+    <A, R> Stream<Pair<K, R>> run(Stream<AJob<K,V>> jobs,
+                                  BiConsumer<AJob<K,V>, Consumer<Pair<K,V>>> compute,
+                                  Collector<V, A, R> reducer,
+                                  Supplier<Map<K, A>> newKeyMap,
+                                  Comparator<? super Pair<K, R>> order) {
+        AJob<K,V> endOfJobs = new AJob<>() {
+            @Override
+            public Stream<Pair<K, V>> execute() {
+                return Stream.empty();
+            }
+        };
+        List<Pair<K,V>> endOfPairs = new ArrayList<>(0);
+        List<Pair<K,R>> endOfPartition = new ArrayList<>(0);
+        List<Pair<K,R>> stopped = new ArrayList<>(0);
+        BlockingQueue<AJob<K,V>> emitted = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<AJob<K,V>> loaded = new ArrayBlockingQueue<>(queueCapacity);
+        List<BlockingQueue<List<Pair<K,V>>>> routed = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++)
+            routed.add(new ArrayBlockingQueue<>(queueCapacity));
+        BlockingQueue<List<Pair<K,R>>> reduced = new ArrayBlockingQueue<>(queueCapacity);
+        List<CompletableFuture<List<Pair<K,R>>>> sorted = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++)
+            sorted.add(new CompletableFuture<>());
+        wakeOutput = () -> {
+            sorted.forEach(sortedPartition -> sortedPartition.complete(List.of()));
+            // the stages are interrupted, only the output takes from the queue now
+            while (!reduced.offer(stopped))
+                reduced.poll();
+        };
+
+        start("pipeline-emit", () -> {
+            jobs.forEach(job -> put(emitted, job));
+            for (int i = 0; i < readers; i++)
+                put(emitted, endOfJobs);
+        });
+
+        AtomicInteger runningReaders = new AtomicInteger(readers);
+        for (int i = 0; i < readers; i++) {
+            start("pipeline-read-" + i, () -> {
+                for (AJob<K,V> job = take(emitted); job != endOfJobs; job = take(emitted))
+                    put(loaded, job.load());
+                if (runningReaders.decrementAndGet() == 0)
+                    for (int j = 0; j < computers; j++)
+                        put(loaded, endOfJobs);
+            });
+        }
+
+        AtomicInteger runningComputers = new AtomicInteger(computers);
+        for (int i = 0; i < computers; i++) {
+            start("pipeline-compute-" + i, () -> {
+                for (AJob<K,V> job = take(loaded); job != endOfJobs; job = take(loaded)) {
+                    List<List<Pair<K,V>>> batches = new ArrayList<>(partitions);
+                    for (int p = 0; p < partitions; p++)
+                        batches.add(new ArrayList<>(BATCH_SIZE));
+                    compute.accept(job, pair -> {
+                        int p = PartitionedShuffle.partitionOf(pair.getKey(), partitions);
+                        List<Pair<K,V>> batch = batches.get(p);
+                        batch.add(pair);
+                        if (batch.size() == BATCH_SIZE) {
+                            put(routed.get(p), batch);
+                            batches.set(p, new ArrayList<>(BATCH_SIZE));
+                        }
+                    });
+                    for (int p = 0; p < partitions; p++)
+                        if (!batches.get(p).isEmpty())
+                            put(routed.get(p), batches.get(p));
+                }
+                if (runningComputers.decrementAndGet() == 0)
+                    routed.forEach(partition -> put(partition, endOfPairs));
+            });
+        }
+
+        Supplier<A> supplier = reducer.supplier();
+        BiConsumer<A, V> accumulator = reducer.accumulator();
+        Function<A, R> finisher = reducer.finisher();
+        for (int i = 0; i < partitions; i++) {
+            BlockingQueue<List<Pair<K,V>>> partition = routed.get(i);
+            CompletableFuture<List<Pair<K,R>>> sortedPartition = sorted.get(i);
+            start("pipeline-aggregate-" + i, () -> {
+                Map<K, A> accumulations = newKeyMap.get();
+                for (List<Pair<K,V>> batch = take(partition); batch != endOfPairs; batch = take(partition))
+                    for (Pair<K,V> pair : batch)
+                        accumulator.accept(accumulations.computeIfAbsent(pair.getKey(), key -> supplier.get()), pair.getValue());
+                if (order != null) {
+                    List<Pair<K,R>> reductions = new ArrayList<>();
+                    accumulations.forEach((key, accumulation) -> reductions.add(new Pair<>(key, finisher.apply(accumulation))));
+                    reductions.sort(order);
+                    sortedPartition.complete(reductions);
+                    return;
+                }
+                List<Pair<K,R>> chunk = new ArrayList<>(BATCH_SIZE);
+                for (Map.Entry<K, A> entry : accumulations.entrySet()) {
+                    chunk.add(new Pair<>(entry.getKey(), finisher.apply(entry.getValue())));
+                    if (chunk.size() == BATCH_SIZE) {
+                        put(reduced, chunk);
+                        chunk = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty())
+                    put(reduced, chunk);
+                put(reduced, endOfPartition);
+            });
+        }
+
+        if (order != null) {
+            List<Iterator<Pair<K,R>>> runs = sorted.stream()
+                    .map(sortedPartition -> sortedPartition.join().iterator())
+                    .collect(Collectors.toList());
+            throwFailure();
+            return PartitionedShuffle.merge(runs, order).onClose(this::cancel);
+        }
+
+        Iterator<List<Pair<K,R>>> chunks = new Iterator<>() {
+            private int finishedPartitions;
+            private List<Pair<K,R>> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && finishedPartitions < partitions) {
+                    List<Pair<K,R>> chunk = take(reduced);
+                    if (chunk == stopped)
+                        throwFailure();
+                    if (chunk == endOfPartition)
+                        finishedPartitions++;
+                    else
+                        next = chunk;
+                }
+                return next != null;
+            }
+
+            @Override
+            public List<Pair<K,R>> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                List<Pair<K,R>> chunk = next;
+                next = null;
+                return chunk;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(this::cancel);
+    }
+
+    // the output stopped: the stages blocked on a full queue would wait forever
+    private void cancel() {
+        cancelled = true;
+        synchronized (stages) {
+            stages.forEach(Thread::interrupt);
+        }
+    }
+
+    // the first failure of a stage stops the others, which would wait forever on its queues, and the output
+    private void failed(Throwable e) {
+        if (!failure.compareAndSet(null, e))
+            return;
+        cancel();
+        wakeOutput.run();
+    }
+
+    private void throwFailure() {
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+    }
+
+    private void start(String name, Runnable stage) {
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (Throwable e) {
+                // a stage interrupted by cancel just ends
+                if (!cancelled)
+                    failed(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        synchronized (stages) {
+            stages.add(thread);
+        }
+        thread.start();
+        // a stage started after a failure missed its interruption
+        if (cancelled)
+            thread.interrupt();
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T element) {
+        try {
+            queue.put(element);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline interrupted", e);
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pipeline interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package part1;
+
+import part1.aux_files.Pair;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Strategy whose values are reduced as the pairs arrive instead of being grouped in lists:
+ * the scheduler keeps one accumulation per key (the supplier, accumulator and combiner of the reducer)
+ * and gives output the finished reduction of every key.
+ */
+public interface ReducingStrategy<K, V, R> extends JobSchedulerStrategy<K, V> {
+    /** Reduction of the values of a key. Its accumulations must be Serializable to be spilled or cached. */
+    Collector<V, ?, R> reducer();
+
+    void outputReduced(Stream<Pair<K, R>> stream);
+
+    /**
+     * Tells apart in the job cache the partial reductions of this strategy from those of the same class
+     * with other settings: it must change whenever the settings change what the reducer accumulates.
+     * The class name by default.
+     */
+    default String reducerVariant() {
+        return getClass().getName();
+    }
+
+    /**
+     * Order in which outputReduced receives the reductions, null for no particular order (the default).
+     * The reductions are not sorted all together: every reducer partition sorts its own on its task,
+     * and the sorted partitions are merged while output consumes them.
+     */
+    default Comparator<? super Pair<K, R>> outputOrder() {
+        return null;
+    }
+
+    /**
+     * Whether the reductions are given to outputPartition instead of outputReduced: the parallel partitioned
+     * executions then output every reducer partition on its own task, at the same time as the others.
+     */
+    default boolean hasPartitionedOutput() {
+        return false;
+    }
+
+    /**
+     * Outputs the reductions of a reducer partition, in outputOrder if any. Called concurrently for different
+     * partitions, which are numbered from 0; the executions without partitions output everything as partition 0.
+     */
+    default void outputPartition(int partition, Stream<Pair<K, R>> stream) {
+        throw new UnsupportedOperationException("No partitioned output");
+    }
+
+    /** Called once every partition is output, with their number. */
+    default void outputPartitionsDone(int partitions) {
+    }
+
+    @Override
+    default void output(Stream<Pair<K, List<V>>> stream) {
+        outputReduced(stream.map(group -> new Pair<>(group.getKey(), group.getValue().stream().collect(reducer()))));
+    }
+}
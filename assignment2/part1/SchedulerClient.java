@@ -0,0 +1,31 @@
+package part1;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Submits a run to a SchedulerDaemon and prints the lines it answers.
+ * Usage: SchedulerClient strategy absolute-directory [port], or SchedulerClient shutdown [port]
+ */
+public class SchedulerClient {
+
+    public static void main(String[] args) throws IOException {
+        boolean shutdown = args.length > 0 && args[0].equals("shutdown");
+        int portArg = shutdown ? 1 : 2;
+        if (args.length < portArg || args.length > portArg + 1 || args.length > portArg && !args[portArg].matches("\\d{1,5}")) {
+            System.err.println("Usage: SchedulerClient strategy absolute-directory [port] | SchedulerClient shutdown [port]");
+            return;
+        }
+        String request = shutdown ? "shutdown" : args[0] + " " + args[1];
+        int port = args.length > portArg ? Integer.parseInt(args[portArg]) : SchedulerDaemon.DEFAULT_PORT;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            out.println(request);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (String line = in.readLine(); line != null; line = in.readLine())
+                System.out.println(line);
+        }
+    }
+}
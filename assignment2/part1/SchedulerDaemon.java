@@ -0,0 +1,134 @@
+package part1;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Long running scheduler accepting job submissions on a local socket, so that the runs do not pay
+ * the JVM startup and find the code already JIT compiled by the previous ones.
+ * A submission is a single line "strategy absolute-directory", where strategy is anagrams
+ * (CountAnagramsStrategy) or anagram-keys (CountAnagramKeysStrategy); the daemon answers with the output
+ * lines of the strategy, or a line "ERROR message" if the submission failed, and closes the connection.
+ * The line "shutdown" stops the daemon.
+ * Submissions are run one at a time, each one in parallel on the same pool.
+ * Usage: SchedulerDaemon [port] [parallelism]
+ */
+public class SchedulerDaemon {
+    public static final int DEFAULT_PORT = 7878;
+
+    private final ForkJoinPool pool;
+    private final JobSchedulerContext<String, String> anagrams;
+    private final JobSchedulerContext<AnagramKey, String> anagramKeys;
+
+    public SchedulerDaemon(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.anagrams = new JobSchedulerContext<>(new CountAnagramsStrategy(), pool);
+        this.anagramKeys = new JobSchedulerContext<>(new CountAnagramKeysStrategy(), pool);
+        this.anagrams.setPartitions(parallelism);
+        this.anagramKeys.setPartitions(parallelism);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        new SchedulerDaemon(parallelism).serve(port);
+    }
+
+    /** Accepts submissions from localhost on the port until a shutdown request. */
+    public void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Scheduler daemon listening on " + server.getLocalSocketAddress());
+            boolean running = true;
+            while (running) {
+                try (Socket client = server.accept()) {
+                    running = handle(client);
+                } catch (IOException e) {
+                    System.err.println("Submission failed: " + e.getMessage());
+                }
+            }
+        } finally {
+            anagrams.close();
+            anagramKeys.close();
+            pool.shutdown();
+        }
+    }
+
+    // runs a submission, false if it asked to shut down the daemon
+    private boolean handle(Socket client) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8));
+        String request = in.readLine();
+        if (request == null)
+            return true;
+        request = request.trim();
+        if (request.equals("shutdown")) {
+            out.println("OK shutting down");
+            out.flush();
+            return false;
+        }
+        String[] parts = request.split("\\s+", 2);
+        Path dir = parts.length == 2 ? Paths.get(parts[1]) : null;
+        if (dir == null || !dir.isAbsolute() || !Files.isDirectory(dir)) {
+            out.println("ERROR expected: strategy absolute-directory");
+            out.flush();
+            return true;
+        }
+        String description = client.getRemoteSocketAddress().toString();
+        try {
+            switch (parts[0]) {
+                case "anagrams":
+                    anagrams.setStrategy(new CountAnagramsStrategy(dir.toString(), description) {
+                        @Override
+                        protected PrintWriter openOutput() {
+                            return unclosable(out);
+                        }
+
+                        @Override
+                        protected void outputWritten(String destination) {
+                            // the client got the output, the daemon has nothing to report
+                        }
+                    });
+                    anagrams.runScheduling();
+                    break;
+                case "anagram-keys":
+                    anagramKeys.setStrategy(new CountAnagramKeysStrategy(dir.toString(), description) {
+                        @Override
+                        protected PrintWriter openOutput() {
+                            return unclosable(out);
+                        }
+
+                        @Override
+                        protected void outputWritten(String destination) {
+                        }
+                    });
+                    anagramKeys.runScheduling();
+                    break;
+                default:
+                    out.println("ERROR unknown strategy " + parts[0] + ", expected anagrams or anagram-keys");
+            }
+        } catch (RuntimeException e) {
+            // a failed run must not stop the daemon, the client learns why it got no output
+            System.err.println("Submission failed: " + e);
+            out.println("ERROR " + e.getMessage());
+        }
+        out.flush();
+        return true;
+    }
+
+    // the strategy closes its output once written, but the connection stays open for the answer of the daemon
+    private static PrintWriter unclosable(PrintWriter out) {
+        return new PrintWriter(new FilterWriter(out) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        });
+    }
+}
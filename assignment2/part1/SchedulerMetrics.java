@@ -0,0 +1,343 @@
+package part1;
+
+import part1.aux_files.AJob;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of a scheduling: wall and CPU time of every phase, throughput, job latencies and heap use.
+ * Phases overlap: the jobs run while the pairs are collected, so the collect phase counts the time of the
+ * grouping call without the time spent executing the jobs; in a sequential run the pairs are grouped while
+ * the jobs push them, so that grouping time is part of the compute phase.
+ * CPU times are those of the threads running the phase, when the JVM supports measuring them.
+ */
+public class SchedulerMetrics implements SchedulerMetricsMBean {
+    public enum Phase { EMIT, COMPUTE, COLLECT, OUTPUT }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final int SLOWEST_JOBS = 10;
+    private static final int LATENCY_BUCKETS = 40;
+
+    private final long[] wallNanos = new long[Phase.values().length];
+    private final long[] cpuNanos = new long[Phase.values().length];
+    private long runStart;
+    private long runWallNanos;
+    private Thread runThread;
+
+    private final LongAdder jobs = new LongAdder();
+    private final LongAdder speculativeCopies = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder jobCpuNanos = new LongAdder();
+    // CPU of the jobs executed by the thread running the scheduling, not part of its collect phase
+    private final LongAdder runThreadJobCpuNanos = new LongAdder();
+    private final AtomicLong firstJobStart = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastJobEnd = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKETS);
+    private final PriorityQueue<JobLatency> slowest = new PriorityQueue<>(Comparator.comparingLong(JobLatency::nanos));
+    // the records and input bytes of the speculative copy running on the thread, counted only if it wins
+    private final ThreadLocal<long[]> copyCounts = new ThreadLocal<>();
+    private long peakHeapBytes;
+
+    private record JobLatency(String job, long nanos) {
+    }
+
+    synchronized void runStarted() {
+        Arrays.fill(wallNanos, 0);
+        Arrays.fill(cpuNanos, 0);
+        jobs.reset();
+        speculativeCopies.reset();
+        records.reset();
+        keys.reset();
+        inputBytes.reset();
+        jobCpuNanos.reset();
+        runThreadJobCpuNanos.reset();
+        firstJobStart.set(Long.MAX_VALUE);
+        lastJobEnd.set(Long.MIN_VALUE);
+        for (int i = 0; i < LATENCY_BUCKETS; i++)
+            latencies.set(i, 0);
+        slowest.clear();
+        // the pools belong to the JVM: this also resets the peaks seen by anything else running in it
+        heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+        runThread = Thread.currentThread();
+        runStart = System.nanoTime();
+    }
+
+    synchronized void runFinished() {
+        runWallNanos = System.nanoTime() - runStart;
+        long computeSpan = Math.max(0, lastJobEnd.get() - firstJobStart.get());
+        wallNanos[Phase.COMPUTE.ordinal()] = computeSpan;
+        cpuNanos[Phase.COMPUTE.ordinal()] = jobCpuNanos.sum();
+        wallNanos[Phase.COLLECT.ordinal()] = Math.max(0, wallNanos[Phase.COLLECT.ordinal()] - computeSpan);
+        cpuNanos[Phase.COLLECT.ordinal()] = Math.max(0, cpuNanos[Phase.COLLECT.ordinal()] - runThreadJobCpuNanos.sum());
+        peakHeapBytes = heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> heap = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+                heap.add(pool);
+        return heap;
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    /** Runs the phase on the current thread, adding its wall and CPU time to the phase. */
+    <T> T time(Phase phase, Supplier<T> action) {
+        long start = System.nanoTime();
+        long cpuStart = cpuTime();
+        try {
+            return action.get();
+        } finally {
+            synchronized (this) {
+                wallNanos[phase.ordinal()] += System.nanoTime() - start;
+                cpuNanos[phase.ordinal()] += cpuTime() - cpuStart;
+            }
+        }
+    }
+
+    void time(Phase phase, Runnable action) {
+        time(phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    void keyOutput() {
+        keys.increment();
+    }
+
+    void speculativeCopy() {
+        speculativeCopies.increment();
+    }
+
+    /**
+     * Holds back the records and input bytes of the jobs executed by the current thread until copyFinished,
+     * so that of the copies of a speculative job only the winning one is counted.
+     */
+    void copyStarted() {
+        copyCounts.set(new long[2]);
+    }
+
+    /** Counts the records and input bytes held back since copyStarted if the copy won, drops them otherwise. */
+    void copyFinished(boolean won) {
+        long[] counts = copyCounts.get();
+        copyCounts.remove();
+        if (won && counts != null) {
+            records.add(counts[0]);
+            inputBytes.add(counts[1]);
+        }
+    }
+
+    /** Wraps the task of the jobs, measuring every execution and counting the records it pushes. */
+    <J extends AJob<?, ?>, T> BiConsumer<J, Consumer<T>> instrument(BiConsumer<J, Consumer<T>> task) {
+        return (job, sink) -> {
+            long start = System.nanoTime();
+            long cpuStart = cpuTime();
+            firstJobStart.accumulateAndGet(start, Math::min);
+            LongAdder jobRecords = new LongAdder();
+            task.accept(job, record -> {
+                jobRecords.increment();
+                sink.accept(record);
+            });
+            long end = System.nanoTime();
+            long cpu = cpuTime() - cpuStart;
+            lastJobEnd.accumulateAndGet(end, Math::max);
+            jobs.increment();
+            long[] counts = copyCounts.get();
+            if (counts == null) {
+                records.add(jobRecords.sum());
+                inputBytes.add(job.inputSize());
+            } else {
+                counts[0] += jobRecords.sum();
+                counts[1] += job.inputSize();
+            }
+            jobCpuNanos.add(cpu);
+            if (Thread.currentThread() == runThread)
+                runThreadJobCpuNanos.add(cpu);
+            long latency = end - start;
+            long micros = Math.max(1, latency / 1000);
+            latencies.incrementAndGet(Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+            synchronized (slowest) {
+                slowest.add(new JobLatency(job.toString(), latency));
+                if (slowest.size() > SLOWEST_JOBS)
+                    slowest.poll();
+            }
+        };
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    @Override
+    public synchronized double getRunWallMillis() {
+        return millis(runWallNanos);
+    }
+
+    @Override
+    public synchronized double getEmitWallMillis() {
+        return millis(wallNanos[Phase.EMIT.ordinal()]);
+    }
+
+    @Override
+    public synchronized double getComputeWallMillis() {
+        return millis(wallNanos[Phase.COMPUTE.ordinal()]);
+    }
+
+    @Override
+    public synchronized double getCollectWallMillis() {
+        return millis(wallNanos[Phase.COLLECT.ordinal()]);
+    }
+
+    @Override
+    public synchronized double getOutputWallMillis() {
+        return millis(wallNanos[Phase.OUTPUT.ordinal()]);
+    }
+
+    @Override
+    public synchronized double getEmitCpuMillis() {
+        return millis(cpuNanos[Phase.EMIT.ordinal()]);
+    }
+
+    @Override
+    public synchronized double getComputeCpuMillis() {
+        return millis(cpuNanos[Phase.COMPUTE.ordinal()]);
+    }
+
+    @Override
+    public synchronized double getCollectCpuMillis() {
+        return millis(cpuNanos[Phase.COLLECT.ordinal()]);
+    }
+
+    @Override
+    public synchronized double getOutputCpuMillis() {
+        return millis(cpuNanos[Phase.OUTPUT.ordinal()]);
+    }
+
+    @Override
+    public long getJobs() {
+        return jobs.sum();
+    }
+
+    @Override
+    public long getSpeculativeCopies() {
+        return speculativeCopies.sum();
+    }
+
+    @Override
+    public long getIntermediateRecords() {
+        return records.sum();
+    }
+
+    @Override
+    public long getKeys() {
+        return keys.sum();
+    }
+
+    @Override
+    public long getInputBytes() {
+        return inputBytes.sum();
+    }
+
+    @Override
+    public synchronized double getRecordsPerSecond() {
+        return runWallNanos == 0 ? 0 : records.sum() / (runWallNanos / 1e9);
+    }
+
+    @Override
+    public synchronized double getBytesPerSecond() {
+        return runWallNanos == 0 ? 0 : inputBytes.sum() / (runWallNanos / 1e9);
+    }
+
+    @Override
+    public synchronized long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    @Override
+    public long[] getJobLatencyHistogram() {
+        long[] histogram = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++)
+            histogram[i] = latencies.get(i);
+        return histogram;
+    }
+
+    @Override
+    public String[] getSlowestJobs() {
+        return slowestJobs().stream()
+                .map(job -> String.format(Locale.ROOT, "%s (%.3f ms)", job.job(), millis(job.nanos())))
+                .toArray(String[]::new);
+    }
+
+    // slowest first
+    private List<JobLatency> slowestJobs() {
+        List<JobLatency> jobs;
+        synchronized (slowest) {
+            jobs = new ArrayList<>(slowest);
+        }
+        jobs.sort(Comparator.comparingLong(JobLatency::nanos).reversed());
+        return jobs;
+    }
+
+    @Override
+    public String getRunSummary() {
+        StringBuilder json = new StringBuilder("{");
+        json.append(String.format(Locale.ROOT, "\"runWallMillis\":%.3f,\"phases\":{", getRunWallMillis()));
+        synchronized (this) {
+            for (Phase phase : Phase.values()) {
+                if (phase.ordinal() > 0) json.append(',');
+                json.append(String.format(Locale.ROOT, "\"%s\":{\"wallMillis\":%.3f,\"cpuMillis\":%.3f}",
+                        phase.name().toLowerCase(Locale.ROOT), millis(wallNanos[phase.ordinal()]), millis(cpuNanos[phase.ordinal()])));
+            }
+        }
+        json.append(String.format(Locale.ROOT, "},\"jobs\":%d,\"speculativeCopies\":%d,\"intermediateRecords\":%d,\"keys\":%d,\"inputBytes\":%d,"
+                        + "\"recordsPerSecond\":%.1f,\"bytesPerSecond\":%.1f,\"peakHeapBytes\":%d,\"jobLatencyHistogram\":[",
+                getJobs(), getSpeculativeCopies(), getIntermediateRecords(), getKeys(), getInputBytes(), getRecordsPerSecond(), getBytesPerSecond(), getPeakHeapBytes()));
+        long[] histogram = getJobLatencyHistogram();
+        boolean first = true;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0) continue;
+            if (!first) json.append(',');
+            json.append("{\"lessThanMicros\":").append(1L << i).append(",\"jobs\":").append(histogram[i]).append('}');
+            first = false;
+        }
+        json.append("],\"slowestJobs\":[");
+        first = true;
+        for (JobLatency job : slowestJobs()) {
+            if (!first) json.append(',');
+            json.append(String.format(Locale.ROOT, "{\"job\":\"%s\",\"millis\":%.3f}", escape(job.job()), millis(job.nanos())));
+            first = false;
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String escape(String s) {
+        StringBuilder escaped = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') escaped.append('\\').append(c);
+            else if (c < 0x20) escaped.append(String.format("\\u%04x", (int) c));
+            else escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
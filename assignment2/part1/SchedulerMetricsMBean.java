@@ -0,0 +1,41 @@
+package part1;
+
+/**
+ * JMX view of the metrics of the last scheduling of a JobSchedulerContext (of the current one while it runs).
+ */
+public interface SchedulerMetricsMBean {
+    double getRunWallMillis();
+
+    double getEmitWallMillis();
+    double getComputeWallMillis();
+    double getCollectWallMillis();
+    double getOutputWallMillis();
+
+    double getEmitCpuMillis();
+    double getComputeCpuMillis();
+    double getCollectCpuMillis();
+    double getOutputCpuMillis();
+
+    long getJobs();
+    /** Copies of straggler jobs started by the speculative execution, also counted among the jobs once they finish. */
+    long getSpeculativeCopies();
+    /** Pairs pushed by the jobs; of the copies of a speculative job only the winning one is counted. */
+    long getIntermediateRecords();
+    long getKeys();
+    /** Input size of the jobs; of the copies of a speculative job only the winning one is counted. */
+    long getInputBytes();
+    double getRecordsPerSecond();
+    double getBytesPerSecond();
+    /**
+     * Peak of the heap pools during the run. The peaks of the pools are global to the JVM and reset when a run
+     * starts: concurrent runs, or other code in the JVM measuring them, see each other's peaks and resets.
+     */
+    long getPeakHeapBytes();
+
+    /** Number of jobs by latency: element i counts the jobs that took less than 2^i microseconds (and at least half of it). */
+    long[] getJobLatencyHistogram();
+    String[] getSlowestJobs();
+
+    /** The whole run summary as a JSON object. */
+    String getRunSummary();
+}
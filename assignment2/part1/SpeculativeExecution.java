@@ -0,0 +1,164 @@
+package part1;
+
+import part1.aux_files.AJob;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs the jobs on an executor and starts a second copy of every job running much slower than the others:
+ * the result of a job is the one of the copy succeeding first, the other copy is ignored. A job fails only
+ * when both its copies fail. The losing copy is not interrupted, a job has no point where it could stop:
+ * if it is already running it keeps its thread of the executor until it is over, so with few threads
+ * the copies can delay the jobs still queued.
+ * A job is a straggler when it runs for more than slowdown times its expected time, which is its input size
+ * at the median speed of the finished jobs (the median time of the finished jobs if the size is not known).
+ * The jobs must be safe to run twice at the same time, their output is used only once anyway.
+ */
+class SpeculativeExecution {
+    // the speeds are not reliable before this many jobs are over
+    private static final int MIN_FINISHED = 3;
+    // jobs shorter than this are never copied, a copy would not finish before them
+    private static final long MIN_STRAGGLER_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long CHECK_INTERVAL_MILLIS = 20;
+
+    private final ExecutorService executor;
+    private final double slowdown;
+    private final SchedulerMetrics metrics;
+    private final List<Attempt<?, ?>> attempts = new ArrayList<>();
+    // nanoseconds per input byte, and nanoseconds, of the finished jobs
+    private double[] speeds = new double[16];
+    private double[] times = new double[16];
+    private int finished;
+
+    /** The metrics count every copy started, and the records and input bytes of the winning copies only. */
+    SpeculativeExecution(ExecutorService executor, double slowdown, SchedulerMetrics metrics) {
+        this.executor = executor;
+        this.slowdown = slowdown;
+        this.metrics = metrics;
+    }
+
+    /** Submits the job, the result completes with the first copy of the job that finishes. */
+    <J extends AJob<?, ?>, R> Future<R> submit(J job, Function<? super J, R> task) {
+        Attempt<J, R> attempt = new Attempt<>(job, task);
+        synchronized (this) {
+            attempts.add(attempt);
+        }
+        executor.submit(attempt::run);
+        return attempt.result;
+    }
+
+    /**
+     * Watches the submitted jobs from a daemon thread until all of them are over,
+     * copying the stragglers. To be called after the last submit.
+     */
+    void watch() {
+        Thread watcher = new Thread(() -> {
+            try {
+                while (!allDone())
+                    Thread.sleep(CHECK_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "speculative-execution");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    // copies the stragglers, true once every job is done
+    private synchronized boolean allDone() {
+        boolean done = true;
+        long now = System.nanoTime();
+        double speed = finished >= MIN_FINISHED ? median(speeds) : 0;
+        double time = finished >= MIN_FINISHED ? median(times) : 0;
+        for (Attempt<?, ?> attempt : attempts) {
+            if (attempt.result.isDone())
+                continue;
+            done = false;
+            long started = attempt.started.get();
+            double expected = attempt.size > 0 && speed > 0 ? speed * attempt.size : time;
+            if (attempt.copy == null && started != 0 && finished >= MIN_FINISHED
+                    && now - started > Math.max(MIN_STRAGGLER_NANOS, slowdown * expected)) {
+                metrics.speculativeCopy();
+                attempt.pending++;
+                attempt.copy = executor.submit(attempt::run);
+            }
+        }
+        return done;
+    }
+
+    private double median(double[] values) {
+        double[] sorted = Arrays.copyOf(values, finished);
+        Arrays.sort(sorted);
+        return sorted[finished / 2];
+    }
+
+    private synchronized void finished(long size, long nanos) {
+        if (finished == times.length) {
+            speeds = Arrays.copyOf(speeds, finished * 2);
+            times = Arrays.copyOf(times, finished * 2);
+        }
+        speeds[finished] = size > 0 ? (double) nanos / size : 0;
+        times[finished] = nanos;
+        finished++;
+    }
+
+    private class Attempt<J extends AJob<?, ?>, R> {
+        private final J job;
+        private final Function<? super J, R> task;
+        private final long size;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        // when the first copy started running, 0 while queued
+        private final AtomicLong started = new AtomicLong();
+        // guarded by the SpeculativeExecution
+        private Future<?> copy;
+        // the copies that can still set the result, and the failure of the first copy to fail
+        private int pending = 1;
+        private Throwable failure;
+
+        Attempt(J job, Function<? super J, R> task) {
+            this.job = job;
+            this.task = task;
+            this.size = job.inputSize();
+        }
+
+        // a copy of the job, the first one to succeed sets the result and cancels the copy if still queued;
+        // a failure sets it only if the other copy cannot succeed any more
+        void run() {
+            if (result.isDone())
+                return;
+            long start = System.nanoTime();
+            started.compareAndSet(0, start);
+            boolean won = false;
+            metrics.copyStarted();
+            try {
+                won = result.complete(task.apply(job));
+                if (won)
+                    finished(size, System.nanoTime() - start);
+            } catch (RuntimeException | Error e) {
+                synchronized (SpeculativeExecution.this) {
+                    if (--pending > 0) {
+                        failure = e;
+                        return;
+                    }
+                }
+                if (failure != null)
+                    e.addSuppressed(failure);
+                result.completeExceptionally(e);
+            } finally {
+                metrics.copyFinished(won);
+            }
+            synchronized (SpeculativeExecution.this) {
+                if (copy != null)
+                    copy.cancel(false);
+            }
+        }
+    }
+}
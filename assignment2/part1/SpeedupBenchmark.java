@@ -0,0 +1,46 @@
+package part1;
+
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the sequential and the parallel execution of CountAnagramsStrategy.
+ * Usage: SpeedupBenchmark [directory] [parallelism] [rounds]
+ * The directory defaults to the aux_files/books corpus, the parallelism to the available processors.
+ */
+public class SpeedupBenchmark {
+
+    public static void main(String[] args) {
+        String dir = args.length > 0 ? args[0] : "assignment2/part1/aux_files/books";
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String absoluteDir = Paths.get(dir).toAbsolutePath().toString();
+
+        CountAnagramsStrategy strategy = new CountAnagramsStrategy(absoluteDir, "count_anagrams.txt");
+        JobSchedulerContext<String, String> sequential = new JobSchedulerContext<>(strategy);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        JobSchedulerContext<String, String> parallel = new JobSchedulerContext<>(strategy, pool);
+
+        // warm-up, so that both modes are measured on JIT compiled code
+        for (int i = 0; i < rounds; i++) {
+            sequential.runScheduling();
+            parallel.runScheduling();
+        }
+        double sequentialMs = time(sequential, rounds);
+        double parallelMs = time(parallel, rounds);
+        sequential.close();
+        parallel.close();
+        pool.shutdown();
+
+        System.out.printf("Sequential: %.2f ms/run%n", sequentialMs);
+        System.out.printf("Parallel (%d threads): %.2f ms/run%n", parallelism, parallelMs);
+        System.out.printf("Speedup: %.2fx%n", sequentialMs / parallelMs);
+    }
+
+    private static double time(JobSchedulerContext<String, String> context, int rounds) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+            context.runScheduling();
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+}
@@ -0,0 +1,158 @@
+package part1;
+
+import part1.aux_files.Pair;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Groups the intermediate pairs with a bounded number of them in memory (external sort).
+ * Whenever the buffer reaches the budget it is sorted by key and written to a temporary file as a run;
+ * at the end the runs are k-way merged, so that all the pairs of a key are read one after the other
+ * and can be reduced before reading the pairs of the next key. The runs are deleted once the merge is over
+ * or its stream is closed.
+ * Keys and values must be Serializable, the key order must be consistent with equals.
+ */
+class SpillingGrouper<K, T extends Pair<K, ?>> {
+    private final long maxBufferedPairs;
+    private final Comparator<T> order;
+
+    SpillingGrouper(long maxBufferedPairs, Comparator<? super K> keyOrder) {
+        this.maxBufferedPairs = maxBufferedPairs;
+        this.order = (left, right) -> keyOrder.compare(left.getKey(), right.getKey());
+    }
+
+    /** Groups the pairs by key and gives every group to the reducer, lazily and in key order when spilled. */
+    <R> Stream<R> group(Stream<T> pairs, Function<Stream<T>, Stream<R>> reducer) {
+        List<Path> runs = new ArrayList<>();
+        List<T> buffer = new ArrayList<>();
+        try {
+            pairs.forEach(pair -> {
+                buffer.add(pair);
+                if (buffer.size() >= maxBufferedPairs) {
+                    runs.add(spill(buffer));
+                    buffer.clear();
+                }
+            });
+        } catch (RuntimeException e) {
+            runs.forEach(SpillingGrouper::delete);
+            throw e;
+        }
+        if (runs.isEmpty())
+            return reducer.apply(buffer.stream());
+
+        buffer.sort(order);
+        PriorityQueue<Run<T>> heads = new PriorityQueue<>((left, right) -> order.compare(left.head, right.head));
+        Run<T> inMemory = new Run<>(buffer.iterator());
+        if (inMemory.head != null)
+            heads.add(inMemory);
+        List<PairFile.Reader<T>> readers = new ArrayList<>(runs.size());
+        // closes the readers still open and deletes the runs, once
+        Runnable release = () -> {
+            for (PairFile.Reader<T> reader : readers)
+                close(reader);
+            readers.clear();
+            runs.forEach(SpillingGrouper::delete);
+            runs.clear();
+        };
+        try {
+            for (Path run : runs) {
+                PairFile.Reader<T> reader = read(run);
+                readers.add(reader);
+                Run<T> cursor = new Run<>(reader);
+                if (cursor.head != null)
+                    heads.add(cursor);
+            }
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        Iterator<List<T>> groups = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                if (heads.isEmpty())
+                    release.run();
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                List<T> group = new ArrayList<>();
+                T first = heads.peek().head;
+                while (!heads.isEmpty() && order.compare(heads.peek().head, first) == 0) {
+                    Run<T> run = heads.poll();
+                    group.add(run.head);
+                    if (run.advance())
+                        heads.add(run);
+                }
+                return group;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(groups, Spliterator.ORDERED), false)
+                .flatMap(group -> reducer.apply(group.stream()))
+                .onClose(release);
+    }
+
+    private Path spill(List<T> buffer) {
+        buffer.sort(order);
+        try {
+            Path run = Files.createTempFile("spill", ".run");
+            try {
+                PairFile.write(run, buffer);
+            } catch (IOException e) {
+                delete(run);
+                throw e;
+            }
+            return run;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill the intermediate pairs", e);
+        }
+    }
+
+    private static <T extends Pair<?, ?>> PairFile.Reader<T> read(Path run) {
+        try {
+            return new PairFile.Reader<>(run);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the spilled run " + run, e);
+        }
+    }
+
+    private static void delete(Path run) {
+        try {
+            Files.deleteIfExists(run);
+        } catch (IOException e) {
+            System.err.println("Cannot delete the spilled run " + run + ": " + e.getMessage());
+        }
+    }
+
+    private static void close(Closeable reader) {
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+            // only read, nothing is lost
+        }
+    }
+
+    // a sorted run with its current pair, head is null once the run is over
+    private static class Run<T> {
+        private final Iterator<T> pairs;
+        private T head;
+
+        Run(Iterator<T> pairs) {
+            this.pairs = pairs;
+            advance();
+        }
+
+        boolean advance() {
+            head = pairs.hasNext() ? pairs.next() : null;
+            return head != null;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package part1;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec.STRING: a varint header holding the number of bytes and whether they are all ASCII, then the bytes.
+ * The words of the jobs are ASCII, so they are copied char by char in both directions.
+ */
+final class StringCodec implements Codec<String> {
+
+    @Override
+    public void encode(String value, ByteBuffer out) {
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++)
+            ascii = value.charAt(i) < 0x80;
+        if (ascii) {
+            putVarint(out, length << 1 | 1);
+            if (out.remaining() < length)
+                throw new BufferOverflowException();
+            for (int i = 0; i < length; i++)
+                out.put((byte) value.charAt(i));
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarint(out, bytes.length << 1);
+            out.put(bytes);
+        }
+    }
+
+    @Override
+    public String decode(ByteBuffer in) {
+        int header = getVarint(in);
+        byte[] bytes = new byte[header >>> 1];
+        in.get(bytes);
+        return new String(bytes, (header & 1) != 0 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    // 7 bits per byte, the high bit set on every byte but the last
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+}
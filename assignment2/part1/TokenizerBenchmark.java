@@ -0,0 +1,80 @@
+package part1;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Scanner;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares the throughput of the Scanner based tokenization, the one CiaoJob used to have,
+ * with the memory mapped WordTokenizer.
+ * Usage: TokenizerBenchmark [directory] [rounds]
+ * The Scanner decodes with the default charset: on hosts where it is not UTF-8 run with -Dfile.encoding=UTF-8,
+ * otherwise the Scanner stops at the first non ASCII character and the two word counts differ.
+ */
+public class TokenizerBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "assignment2/part1/aux_files/books");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(path -> path.toString().endsWith(".txt")).collect(Collectors.toList());
+        }
+        long bytes = 0;
+        for (Path file : files)
+            bytes += Files.size(file);
+
+        // warm-up, checking that both tokenizers find the same words
+        for (int i = 0; i < rounds; i++) {
+            long scanned = scanner(files);
+            long mapped = mapped(files);
+            if (scanned != mapped)
+                throw new IllegalStateException("Scanner found " + scanned + " words, WordTokenizer " + mapped);
+        }
+        double scannerMBs = throughput(bytes, rounds, () -> scanner(files));
+        double mappedMBs = throughput(bytes, rounds, () -> mapped(files));
+
+        System.out.printf("Scanner: %.1f MB/s%n", scannerMBs);
+        System.out.printf("WordTokenizer: %.1f MB/s%n", mappedMBs);
+        System.out.printf("Speedup: %.2fx%n", mappedMBs / scannerMBs);
+    }
+
+    private interface Tokenization {
+        long run() throws IOException;
+    }
+
+    private static double throughput(long bytes, int rounds, Tokenization tokenization) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+            tokenization.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return bytes * rounds / seconds / (1 << 20);
+    }
+
+    // the tokenization CiaoJob did before WordTokenizer, returns the number of words of at least four letters
+    private static long scanner(List<Path> files) throws IOException {
+        long words = 0;
+        for (Path file : files) {
+            try (Scanner scanner = new Scanner(new File(file.toString()))) {
+                scanner.useDelimiter("\\P{Alpha}+");
+                while (scanner.hasNext())
+                    if (scanner.next().length() >= 4)
+                        words++;
+            }
+        }
+        return words;
+    }
+
+    private static long mapped(List<Path> files) throws IOException {
+        long[] words = new long[1];
+        for (Path file : files)
+            WordTokenizer.forEachWord(file, 4, word -> words[0]++);
+        return words[0];
+    }
+}
@@ -0,0 +1,110 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Compares a pool of platform threads with a virtual thread per job on an I/O bound CountAnagramsStrategy:
+ * every book is counted many times and every job first waits a fixed delay, simulating a slow disk.
+ * Before Java 21 the second run has a platform thread per job, and the output says so.
+ * Usage: VirtualThreadBenchmark [directory] [copies of every book] [delay ms] [platform threads]
+ */
+public class VirtualThreadBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String dir = Paths.get(args.length > 0 ? args[0] : "assignment2/part1/aux_files/books").toAbsolutePath().toString();
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long delayMs = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        File out = File.createTempFile("count_anagrams", ".txt");
+        out.deleteOnExit();
+
+        SlowDiskStrategy strategy = new SlowDiskStrategy(dir, out.getPath(), copies, delayMs);
+        JobSchedulerContext<String, String> context = new JobSchedulerContext<>(strategy);
+
+        ExecutorService platform = Executors.newFixedThreadPool(threads);
+        context.setExecutor(platform);
+        double platformMs = time(context);
+        platform.shutdown();
+
+        boolean virtual = context.setVirtualThreadPerJob();
+        double virtualMs = time(context);
+        context.close();
+
+        System.out.printf("%d jobs, %d ms of simulated I/O each%n", strategy.jobs, delayMs);
+        System.out.printf("Platform threads (%d): %.1f ms%n", threads, platformMs);
+        System.out.printf("%s thread per job: %.1f ms%n", virtual ? "Virtual" : "Platform", virtualMs);
+        System.out.printf("Speedup: %.2fx%n", platformMs / virtualMs);
+    }
+
+    private static double time(JobSchedulerContext<String, String> context) {
+        long start = System.nanoTime();
+        context.runScheduling();
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    // emits every CiaoJob many times, each one waiting before reading its file
+    private static class SlowDiskStrategy extends CountAnagramsStrategy {
+        private final int copies;
+        private final long delayMs;
+        private int jobs;
+
+        SlowDiskStrategy(String dir_name, String out_file, int copies, long delayMs) {
+            super(dir_name, out_file);
+            this.copies = copies;
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        protected AJob<String, String> newJob(String filePath, long start, long end) {
+            return new SlowJob(super.newJob(filePath, start, end), delayMs);
+        }
+
+        @Override
+        public Stream<AJob<String, String>> emit() {
+            jobs = 0;
+            return super.emit().flatMap(job -> Stream.generate(() -> {
+                jobs++;
+                return job;
+            }).limit(copies));
+        }
+    }
+
+    private static class SlowJob extends AJob<String, String> {
+        private final AJob<String, String> job;
+        private final long delayMs;
+
+        SlowJob(AJob<String, String> job, long delayMs) {
+            this.job = job;
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public Stream<Pair<String, String>> execute() {
+            waitDisk();
+            return job.execute();
+        }
+
+        @Override
+        public void execute(Consumer<? super Pair<String, String>> sink) {
+            waitDisk();
+            job.execute(sink);
+        }
+
+        private void waitDisk() {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package part1;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Job emitting (word, 1) for every word of a file, lowercased, as a LongValueJob: no Long and no Pair per word.
+ */
+public class WordCountJob extends LongValueJob<String> implements Serializable {
+    private final String filePath;
+
+    public WordCountJob(String filePath) {
+        this.filePath = filePath;
+    }
+
+    @Override
+    public void executeLong(Sink<? super String> sink) {
+        // only a file that cannot be read is ignored, the failures of the sink go to the scheduler
+        Path path = Paths.get(this.filePath);
+        try {
+            if (GzipInput.isCompressed(path))
+                WordTokenizer.forEachCompressedWord(path, 1, word -> sink.accept(word.toLowerCase(Locale.ROOT), 1));
+            else
+                WordTokenizer.forEachWord(path, 1, word -> sink.accept(word.toLowerCase(Locale.ROOT), 1));
+        } catch (IOException e) {
+            System.err.println("Error during execution: " + e.getMessage());
+            System.err.println("File " + this.filePath + " ignored");
+            JobCache.inputSkipped();
+        }
+    }
+
+    @Override
+    public long inputSize() {
+        return Paths.get(this.filePath).toFile().length();
+    }
+
+    @Override
+    public String toString() {
+        return this.filePath;
+    }
+}
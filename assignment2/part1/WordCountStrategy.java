@@ -0,0 +1,56 @@
+package part1;
+
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Counts the occurrences of every word in the .txt and .txt.gz files of a directory, one job per file,
+ * writing one line per word with its count. The counts are longs reduced without boxing.
+ */
+public class WordCountStrategy implements LongReducingStrategy<String>, Serializable {
+    private final String dir_name;
+    private final String out_file;
+
+    public WordCountStrategy(String dir_name, String out_file) {
+        this.dir_name = dir_name;
+        this.out_file = out_file;
+    }
+
+    @Override
+    public Stream<AJob<String, Long>> emit() {
+        Path dir = Paths.get(dir_name);
+        if (!Files.isDirectory(dir)) {
+            System.err.println("The directory '" + dir_name + "' is not valid");
+            return Stream.empty();
+        }
+        try {
+            return Files.list(dir)
+                    .filter(file -> file.toString().endsWith(".txt") || file.toString().endsWith(".txt.gz"))
+                    .map(file -> new WordCountJob(file.toString()));
+        } catch (IOException e) {
+            System.err.println("IO error opening the directory '" + dir_name + "'");
+            System.err.println(e.getMessage());
+            return Stream.empty();
+        }
+    }
+
+    @Override
+    public void outputReduced(Stream<Pair<String, Long>> stream) {
+        try (PrintWriter pw = new PrintWriter(this.out_file, StandardCharsets.UTF_8)) {
+            stream.forEach(wordCount -> pw.println(wordCount.getKey() + ", " + wordCount.getValue()));
+            System.out.println("Output wrote to " + out_file);
+        } catch (IOException e) {
+            System.err.println("IO error occurred");
+            System.err.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package part1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Splits raw bytes into words made of ASCII alphabetic characters only, the same words that a Scanner
+ * with the \P{Alpha}+ delimiter returns. Any other byte, including the bytes of multibyte UTF-8
+ * characters, is a delimiter, so the input never needs to be decoded.
+ * The bytes can be fed in chunks: a word split between two chunks is kept until it is complete.
+ */
+class WordTokenizer {
+    // files are mapped in windows of this size, since a single mapping cannot exceed 2 GB
+    private static final long MAP_WINDOW = 64L << 20;
+    private static final boolean[] ALPHA = new boolean[256];
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ALPHA[c] = true;
+            ALPHA[Character.toUpperCase(c)] = true;
+        }
+    }
+
+    private final int minLength;
+    private final Consumer<String> action;
+    // the letters of the current word
+    private byte[] word = new byte[64];
+    private int length;
+
+    /** Words shorter than minLength are skipped without creating a String for them. */
+    WordTokenizer(int minLength, Consumer<String> action) {
+        this.minLength = minLength;
+        this.action = action;
+    }
+
+    static boolean isAlpha(byte b) {
+        return ALPHA[b & 0xFF];
+    }
+
+    /** Tokenizes the whole file through a memory mapping. */
+    static void forEachWord(Path file, int minLength, Consumer<String> action) throws IOException {
+        forEachWord(file, 0, Long.MAX_VALUE, minLength, action);
+    }
+
+    /**
+     * Tokenizes the words of the file starting in the byte range [start, end), so that splitting a file
+     * in contiguous ranges finds every word exactly once: a word crossing start belongs to the previous range
+     * and is skipped, a word crossing end is read to its end.
+     */
+    static void forEachWord(Path file, long start, long end, int minLength, Consumer<String> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WordTokenizer tokenizer = new WordTokenizer(minLength, action);
+            long[] region = region(channel, start, end);
+            for (long position = region[0]; position < region[1]; position += MAP_WINDOW)
+                tokenizer.feed(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, region[1] - position)));
+            tokenizer.finish();
+        }
+    }
+
+    /** Tokenizes the decompressed bytes of a gzip file while they are decompressed by another thread. */
+    static void forEachCompressedWord(Path file, int minLength, Consumer<String> action) throws IOException {
+        WordTokenizer tokenizer = new WordTokenizer(minLength, action);
+        GzipInput.forEachChunk(file, tokenizer::feed);
+        tokenizer.finish();
+    }
+
+    /**
+     * Reads in memory the bytes of the words starting in the byte range [start, end) of the file,
+     * the same words that forEachWord finds, to be tokenized later with feed.
+     */
+    static ByteBuffer read(Path file, long start, long end) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] region = region(channel, start, end);
+            if (region[1] - region[0] > Integer.MAX_VALUE)
+                throw new IOException("Range too large to be read in memory, use smaller splits");
+            ByteBuffer words = ByteBuffer.allocate((int) Math.max(0, region[1] - region[0]));
+            while (words.hasRemaining() && channel.read(words, region[0] + words.position()) > 0);
+            return words.flip();
+        }
+    }
+
+    // the bytes [from, to) holding the words starting in [start, end): without the end of a word crossing start,
+    // with the end of a word crossing end
+    private static long[] region(FileChannel channel, long start, long end) throws IOException {
+        long size = channel.size();
+        long from = start;
+        long to = Math.min(end, size);
+        if (from > 0 && from < size && isAlpha(byteAt(channel, from - 1)))
+            from = nextDelimiter(channel, from, size);
+        if (from < to && to < size && isAlpha(byteAt(channel, to - 1)))
+            to = nextDelimiter(channel, to, size);
+        return new long[]{from, to};
+    }
+
+    private static byte byteAt(FileChannel channel, long position) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(1);
+        channel.read(b, position);
+        return b.get(0);
+    }
+
+    // position of the first non alphabetic byte from the given one, or size if there is none
+    private static long nextDelimiter(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (long position = from; position < size; position += buffer.limit()) {
+            buffer.clear();
+            if (channel.read(buffer, position) <= 0)
+                break;
+            buffer.flip();
+            for (int i = 0; i < buffer.limit(); i++)
+                if (!isAlpha(buffer.get(i)))
+                    return position + i;
+        }
+        return size;
+    }
+
+    /** Tokenizes the remaining bytes of the chunk, consuming it. */
+    void feed(ByteBuffer chunk) {
+        int limit = chunk.limit();
+        for (int i = chunk.position(); i < limit; i++) {
+            byte b = chunk.get(i);
+            if (ALPHA[b & 0xFF]) {
+                if (length == word.length) {
+                    byte[] larger = new byte[length * 2];
+                    System.arraycopy(word, 0, larger, 0, length);
+                    word = larger;
+                }
+                word[length++] = b;
+            } else if (length > 0) {
+                endWord();
+            }
+        }
+        chunk.position(limit);
+    }
+
+    /** Ends the last word, to be called after the last chunk. */
+    void finish() {
+        if (length > 0)
+            endWord();
+    }
+
+    private void endWord() {
+        if (length >= minLength)
+            action.accept(new String(word, 0, length, StandardCharsets.ISO_8859_1));
+        length = 0;
+    }
+}
@@ -1,9 +1,49 @@
 package part1.aux_files;
 
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 public abstract class AJob<K,V>{
 
     public abstract Stream<Pair<K,V>> execute();
 
+    /**
+     * Push-style execution: hands every pair to the sink as soon as it is produced.
+     * The default adapts execute(), jobs that can produce their pairs one at a time should override it
+     * and implement execute() on top of it.
+     */
+    public void execute(Consumer<? super Pair<K,V>> sink) {
+        execute().forEach(sink);
+    }
+
+    /**
+     * Identifies the input of the job for the incremental schedulings: it must change whenever the output
+     * of the job may change. Null, the default, means that the output of the job is never cached.
+     */
+    public String cacheKey() {
+        return null;
+    }
+
+    /** Size in bytes of the input of the job, 0 if unknown. */
+    public long inputSize() {
+        return 0;
+    }
+
+    /**
+     * Estimated cost of the job in any unit shared by the jobs of a strategy, used to dispatch the most
+     * expensive jobs first. Defaults to the input size, jobs knowing better (a slow volume, a costly format)
+     * can override it.
+     */
+    public long cost() {
+        return inputSize();
+    }
+
+    /**
+     * Reads the input of the job in memory and returns a job computing on it, so that reading and computing
+     * can be separate stages of a pipeline. The default returns the job itself, which reads while computing.
+     */
+    public AJob<K,V> load() {
+        return this;
+    }
+
 }
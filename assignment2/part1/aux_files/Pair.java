@@ -1,8 +1,8 @@
 package part1.aux_files;
 
-public class Pair<K,V>{
-    K key;
-    V value;
+public final class Pair<K,V>{
+    private final K key;
+    private final V value;
     public Pair(K key , V value){
 	this.key = key;
 	this.value = value;
@@ -0,0 +1,85 @@
+package part1.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import part1.AnagramKey;
+import part1.CiaoJob;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * CiaoJob.execute over every file of the corpus, and the key of every word of the corpus
+ * computed by CiaoJob.ciao and by AnagramKey.Encoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CiaoJobBenchmark {
+    @Param({Corpus.BOOKS, Corpus.SYNTHETIC})
+    public String corpus;
+    @Param({"16"})
+    public int fileCount;
+    @Param({"1048576"})
+    public long fileSize;
+
+    private Path dir;
+    private List<Path> files;
+    private String[] words;
+
+    // exposes the key function of CiaoJob, which is protected
+    private static class KeyFunction extends CiaoJob {
+        KeyFunction() {
+            super("");
+        }
+
+        Function<String, String> get() {
+            return ciao();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Corpus.create(corpus, fileCount, fileSize);
+        files = Corpus.files(dir);
+        List<String> all = new ArrayList<>();
+        for (Path file : files)
+            for (String word : Files.readString(file).split("\\P{Alpha}+"))
+                if (word.length() >= 4)
+                    all.add(word);
+        words = all.toArray(new String[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Corpus.delete(dir);
+    }
+
+    @Benchmark
+    public void execute(Blackhole blackhole) {
+        for (Path file : files)
+            new CiaoJob(file.toString()).execute(blackhole::consume);
+    }
+
+    @Benchmark
+    public void ciao(Blackhole blackhole) {
+        Function<String, String> ciao = new KeyFunction().get();
+        for (String word : words)
+            blackhole.consume(ciao.apply(word));
+    }
+
+    @Benchmark
+    public void anagramKey(Blackhole blackhole) {
+        AnagramKey.Encoder encoder = new AnagramKey.Encoder();
+        for (String word : words)
+            blackhole.consume(encoder.encode(word));
+    }
+}
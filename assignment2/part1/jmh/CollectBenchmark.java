@@ -0,0 +1,94 @@
+package part1.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import part1.CiaoJob;
+import part1.JobSchedulerContext;
+import part1.JobSchedulerStrategy;
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The grouping of JobSchedulerContext.collect alone: the jobs replay pairs computed in advance,
+ * so that the time goes into grouping them by key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectBenchmark {
+    @Param({Corpus.BOOKS, Corpus.SYNTHETIC})
+    public String corpus;
+    @Param({"16"})
+    public int fileCount;
+    @Param({"1048576"})
+    public long fileSize;
+    @Param({"1", "4"})
+    public int parallelism;
+    @Param({"false", "true"})
+    public boolean compactKeyMaps;
+
+    private Path dir;
+    private List<List<Pair<String, String>>> pairs;
+    private JobSchedulerContext<String, String> context;
+    private Blackhole blackhole;
+
+    private static class ReplayJob extends AJob<String, String> {
+        private final List<Pair<String, String>> pairs;
+
+        ReplayJob(List<Pair<String, String>> pairs) {
+            this.pairs = pairs;
+        }
+
+        @Override
+        public Stream<Pair<String, String>> execute() {
+            return pairs.stream();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Corpus.create(corpus, fileCount, fileSize);
+        pairs = new ArrayList<>();
+        for (Path file : Corpus.files(dir))
+            pairs.add(new CiaoJob(file.toString()).execute().collect(Collectors.toList()));
+        context = new JobSchedulerContext<>(new JobSchedulerStrategy<>() {
+            @Override
+            public Stream<AJob<String, String>> emit() {
+                return pairs.stream().map(ReplayJob::new);
+            }
+
+            @Override
+            public void output(Stream<Pair<String, List<String>>> stream) {
+                stream.forEach(blackhole::consume);
+            }
+        });
+        if (parallelism > 1) {
+            context.setParallelism(parallelism);
+            context.setPartitions(parallelism);
+        }
+        context.setCompactKeyMaps(compactKeyMaps);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Corpus.delete(dir);
+    }
+
+    @Benchmark
+    public void collect(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        context.runScheduling();
+    }
+}
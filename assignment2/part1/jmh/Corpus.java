@@ -0,0 +1,72 @@
+package part1.jmh;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Inputs of the benchmarks: the aux_files/books corpus, or a synthetic copy of it scaled to the given
+ * number of files of the given size, made of the books text repeated from a different offset in every file.
+ * The books are looked up in the books.dir system property, by default relative to the jmh directory.
+ */
+final class Corpus {
+    static final String BOOKS = "books";
+    static final String SYNTHETIC = "synthetic";
+
+    private Corpus() {
+    }
+
+    static Path books() {
+        return Paths.get(System.getProperty("books.dir", "../aux_files/books")).toAbsolutePath();
+    }
+
+    /** Returns the directory of the corpus, a new temporary one for the synthetic corpus. */
+    static Path create(String corpus, int fileCount, long fileSize) throws IOException {
+        if (BOOKS.equals(corpus))
+            return books();
+        byte[] text = text();
+        Path dir = Files.createTempDirectory("corpus");
+        for (int i = 0; i < fileCount; i++) {
+            try (OutputStream out = Files.newOutputStream(dir.resolve("synthetic-" + i + ".txt"))) {
+                int offset = (int) ((i * 7919L) % text.length);
+                for (long written = 0; written < fileSize; ) {
+                    int length = (int) Math.min(text.length - offset, fileSize - written);
+                    out.write(text, offset, length);
+                    written += length;
+                    offset = 0;
+                }
+            }
+        }
+        return dir;
+    }
+
+    /** Deletes the directory of a synthetic corpus, the books are left alone. */
+    static void delete(Path dir) throws IOException {
+        if (dir.equals(books()))
+            return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(path);
+        }
+    }
+
+    static List<Path> files(Path dir) throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.filter(path -> path.toString().endsWith(".txt")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    // all the books one after the other
+    private static byte[] text() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (Path book : files(books()))
+            text.append(Files.readString(book)).append('\n');
+        return text.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,58 @@
+package part1.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import part1.CountAnagramsStrategy;
+import part1.JobSchedulerContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end runScheduling of CountAnagramsStrategy, sequential (parallelism 1) or on a ForkJoinPool
+ * with as many reducer partitions as threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RunSchedulingBenchmark {
+    @Param({Corpus.BOOKS, Corpus.SYNTHETIC})
+    public String corpus;
+    @Param({"16"})
+    public int fileCount;
+    @Param({"1048576"})
+    public long fileSize;
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private Path dir;
+    private File out;
+    private JobSchedulerContext<String, String> context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Corpus.create(corpus, fileCount, fileSize);
+        out = File.createTempFile("count_anagrams", ".txt");
+        context = new JobSchedulerContext<>(new CountAnagramsStrategy(dir.toString(), out.getPath()));
+        if (parallelism > 1) {
+            context.setParallelism(parallelism);
+            context.setPartitions(parallelism);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Corpus.delete(dir);
+        out.delete();
+    }
+
+    @Benchmark
+    public void runScheduling() {
+        context.runScheduling();
+    }
+}
@@ -0,0 +1,100 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnagramKeyTest {
+    private static final List<String> WORDS = List.of(
+            "listen", "Silent", "ENLIST", "tinsel", "inlets", "a", "B", "ab", "ba", "aa", "zz", "zzzzzzzzzzzz",
+            "aaaaaaaaaaaa", "abcdefghijkl", "lkjihgfedcba", "abcdefghijklm", "mlkjihgfedcba",
+            "Uncharacteristically", "characteristicallyUn", "incomprehensibilities", "zzzzzzzzzzzzz");
+
+    // the key of the words of a CiaoJob, the sorted lowercase letters
+    private final Function<String, String> ciao = new CiaoJob("unused").ciao();
+
+    @Test
+    public void testToStringIsTheCiaoOfTheWord() {
+        AnagramKey.Encoder encoder = new AnagramKey.Encoder();
+        for (String word : words())
+            assertEquals(ciao.apply(word), encoder.encode(word).toString(), word);
+    }
+
+    @Test
+    public void testEqualsAndHashCodeFollowTheCiao() {
+        AnagramKey.Encoder encoder = new AnagramKey.Encoder();
+        List<String> words = words();
+        List<AnagramKey> keys = new ArrayList<>();
+        for (String word : words)
+            keys.add(encoder.encode(word));
+        for (int i = 0; i < words.size(); i++) {
+            for (int j = 0; j < words.size(); j++) {
+                boolean anagrams = ciao.apply(words.get(i)).equals(ciao.apply(words.get(j)));
+                assertEquals(anagrams, keys.get(i).equals(keys.get(j)), words.get(i) + " " + words.get(j));
+                if (anagrams)
+                    assertEquals(keys.get(i).hashCode(), keys.get(j).hashCode(), words.get(i) + " " + words.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void testCompareToFollowsTheCiao() {
+        AnagramKey.Encoder encoder = new AnagramKey.Encoder();
+        List<String> words = words();
+        for (String left : words) {
+            for (String right : words) {
+                int expected = Integer.signum(ciao.apply(left).compareTo(ciao.apply(right)));
+                assertEquals(expected, Integer.signum(encoder.encode(left).compareTo(encoder.encode(right))), left + " " + right);
+            }
+        }
+    }
+
+    @Test
+    public void testLongerWordsFallBackToTheSortedString() {
+        AnagramKey.Encoder encoder = new AnagramKey.Encoder();
+        AnagramKey packed = encoder.encode("abcdefghijkl");
+        AnagramKey longer = encoder.encode("mlkjihgfedcba");
+
+        assertEquals("abcdefghijklm", longer.toString());
+        assertEquals(longer, encoder.encode("abcdefghijklm"));
+        assertEquals(longer.hashCode(), encoder.encode("ABCDEFGHIJKLM").hashCode());
+        assertNotEquals(packed, longer);
+        assertTrue(packed.compareTo(longer) < 0);
+        assertTrue(longer.compareTo(packed) > 0);
+    }
+
+    @Test
+    public void testWordsWithOtherCharactersFallBackToTheSortedString() {
+        AnagramKey.Encoder encoder = new AnagramKey.Encoder();
+
+        assertEquals(ciao.apply("citt\u00e0"), encoder.encode("citt\u00e0").toString());
+        assertEquals(encoder.encode("citt\u00e0"), encoder.encode("\u00e0citt"));
+        assertNotEquals(encoder.encode("citta"), encoder.encode("citt\u00e0"));
+    }
+
+    @Test
+    public void testEncoderReusesThePackedKeys() {
+        AnagramKey.Encoder encoder = new AnagramKey.Encoder();
+
+        assertSame(encoder.encode("listen"), encoder.encode("silent"));
+        assertSame(encoder.encode("listen"), encoder.encode("LISTEN"));
+    }
+
+    // the fixed words, and random ones of 1 to 16 letters from a small alphabet, so that many are anagrams
+    private static List<String> words() {
+        List<String> words = new ArrayList<>(WORDS);
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            char[] letters = new char[1 + random.nextInt(16)];
+            for (int j = 0; j < letters.length; j++)
+                letters[j] = (char) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(4) * 7);
+            words.add(new String(letters));
+        }
+        return words;
+    }
+}
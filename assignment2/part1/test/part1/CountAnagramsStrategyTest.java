@@ -0,0 +1,98 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountAnagramsStrategyTest {
+    private static final String TEXT = "Nel mezzo del cammin di nostra vita mi ritrovai per una selva oscura,\n"
+            + "ch\u00e9 la diritta via era smarrita. Ahi quanto a dir qual era \u00e8 cosa dura\n"
+            + "esta selva selvaggia e aspra e forte che nel pensier rinova la paura!\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSplitsEmitTheWordsOfTheUnsplitFile() throws IOException {
+        Files.writeString(dir.resolve("inferno.txt"), TEXT, StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("short.txt"), "abc roma amor", StandardCharsets.UTF_8);
+        List<String> unsplit = new ArrayList<>();
+        for (Path file : List.of(dir.resolve("inferno.txt"), dir.resolve("short.txt")))
+            WordTokenizer.forEachWord(file, 4, unsplit::add);
+        Collections.sort(unsplit);
+
+        assertEquals(unsplit, words(null));
+        for (long splitSize : new long[]{1, 2, 7}) {
+            assertEquals(unsplit, words(splitSize), "split size " + splitSize);
+            assertEquals(unsplit, loadedWords(splitSize), "loaded, split size " + splitSize);
+        }
+    }
+
+    @Test
+    public void testEveryWordHasItsCiaoAsKey() throws IOException {
+        Files.writeString(dir.resolve("inferno.txt"), TEXT, StandardCharsets.UTF_8);
+        CountAnagramsStrategy strategy = new CountAnagramsStrategy(dir.toString(), "unused");
+        strategy.setSplitSize(7);
+        for (AJob<String, String> job : strategy.emit().collect(Collectors.toList()))
+            job.execute(pair -> assertEquals(new CiaoJob("unused").ciao().apply(pair.getValue()), pair.getKey()));
+    }
+
+    @Test
+    public void testFailingSinkIsNotIgnored() throws IOException {
+        String file = Files.writeString(dir.resolve("inferno.txt"), TEXT, StandardCharsets.UTF_8).toString();
+        CiaoJob job = new CiaoJob(file);
+
+        assertThrows(IllegalStateException.class, () -> job.execute(pair -> {
+            throw new IllegalStateException("sink");
+        }));
+        assertThrows(IllegalStateException.class, () -> job.load().execute(pair -> {
+            throw new IllegalStateException("sink");
+        }));
+        assertThrows(IllegalStateException.class, () -> new WordCountJob(file).executeLong((word, count) -> {
+            throw new IllegalStateException("sink");
+        }));
+    }
+
+    @Test
+    public void testUnreadableFileIsIgnored() {
+        String file = dir.resolve("missing.txt").toString();
+
+        assertEquals(0, new CiaoJob(file).execute().count());
+        assertEquals(0, new CiaoJob(file).load().execute().count());
+        assertEquals(0, new WordCountJob(file).execute().count());
+    }
+
+    @Test
+    public void testSplitSizeMustBePositive() {
+        CountAnagramsStrategy strategy = new CountAnagramsStrategy(dir.toString(), "unused");
+
+        assertThrows(IllegalArgumentException.class, () -> strategy.setSplitSize(0));
+        assertThrows(IllegalArgumentException.class, () -> strategy.setSplitSize(-1));
+    }
+
+    // the words of the jobs of the strategy, sorted; a null split size keeps the default one
+    private List<String> words(Long splitSize) {
+        CountAnagramsStrategy strategy = new CountAnagramsStrategy(dir.toString(), "unused");
+        if (splitSize != null)
+            strategy.setSplitSize(splitSize);
+        return strategy.emit().flatMap(AJob::execute).map(Pair::getValue).sorted().collect(Collectors.toList());
+    }
+
+    private List<String> loadedWords(long splitSize) {
+        CountAnagramsStrategy strategy = new CountAnagramsStrategy(dir.toString(), "unused");
+        strategy.setSplitSize(splitSize);
+        return strategy.emit().map(AJob::load).flatMap(AJob::execute).map(Pair::getValue).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,62 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+import part1.aux_files.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EncodedPairBufferTest {
+
+    @Test
+    public void testPairsAreDecodedInOrder() {
+        EncodedPairBuffer.Pool pool = new EncodedPairBuffer.Pool(4);
+        List<Pair<String, String>> pairs = new ArrayList<>();
+        // enough pairs to fill several segments, some of them not ASCII
+        for (int i = 0; i < 20000; i++)
+            pairs.add(new Pair<>("key" + i % 97, i % 10 == 0 ? "citt\u00e0" + i : "word" + i));
+
+        assertEquals(text(pairs), decoded(pool, pairs));
+    }
+
+    @Test
+    public void testPairLargerThanASegment() {
+        EncodedPairBuffer.Pool pool = new EncodedPairBuffer.Pool(4);
+        String word = "a".repeat(40000);
+        String longer = "b".repeat(200000);
+        List<Pair<String, String>> pairs = List.of(new Pair<>("aaaa", "aaaa"), new Pair<>(word, word),
+                new Pair<>("bbbb", "bbbb"), new Pair<>(longer, longer), new Pair<>("cccc", "cccc"));
+
+        assertEquals(text(pairs), decoded(pool, pairs));
+        // the segments go back to the pool, the large ones excluded, and work again
+        assertEquals(text(pairs), decoded(pool, pairs));
+    }
+
+    @Test
+    public void testEmptyBuffer() {
+        EncodedPairBuffer<String, String> buffer = new EncodedPairBuffer<>(Codec.STRING, Codec.STRING, new EncodedPairBuffer.Pool(1));
+
+        assertTrue(buffer.isEmpty());
+        try (Stream<Pair<String, String>> pairs = buffer.stream()) {
+            assertEquals(0, pairs.count());
+        }
+    }
+
+    // Pair has no equals, the pairs are compared as text
+    private static List<String> text(List<Pair<String, String>> pairs) {
+        return pairs.stream().map(pair -> pair.getKey() + "=" + pair.getValue()).collect(Collectors.toList());
+    }
+
+    private static List<String> decoded(EncodedPairBuffer.Pool pool, List<Pair<String, String>> pairs) {
+        EncodedPairBuffer<String, String> buffer = new EncodedPairBuffer<>(Codec.STRING, Codec.STRING, pool);
+        pairs.forEach(buffer::accept);
+        assertFalse(buffer.isEmpty());
+        try (Stream<Pair<String, String>> decoded = buffer.stream()) {
+            return text(decoded.collect(Collectors.toList()));
+        }
+    }
+}
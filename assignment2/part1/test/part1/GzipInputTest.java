@@ -0,0 +1,79 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GzipInputTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testChunksHoldTheDecompressedBytes() throws IOException {
+        // more than the two buffers of the decompression, so that they are reused
+        byte[] bytes = bytes(3 << 20);
+        Path file = compress(bytes, "text.txt.gz");
+
+        assertArrayEquals(bytes, decompress(file));
+        assertArrayEquals(new byte[0], decompress(compress(new byte[0], "empty.txt.gz")));
+    }
+
+    @Test
+    public void testTruncatedFileThrows() throws IOException {
+        byte[] compressed = Files.readAllBytes(compress(bytes(3 << 20), "text.txt.gz"));
+        Path truncated = Files.write(dir.resolve("truncated.txt.gz"), Arrays.copyOf(compressed, compressed.length / 2));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(IOException.class, () -> decompress(truncated)));
+    }
+
+    @Test
+    public void testFailingActionStopsTheDecompression() throws IOException {
+        Path file = compress(bytes(3 << 20), "text.txt.gz");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(IllegalStateException.class,
+                () -> GzipInput.forEachChunk(file, chunk -> {
+                    throw new IllegalStateException("action");
+                })));
+    }
+
+    @Test
+    public void testOnlyGzipFilesAreCompressed() {
+        assertTrue(GzipInput.isCompressed(dir.resolve("book.txt.gz")));
+        assertFalse(GzipInput.isCompressed(dir.resolve("book.txt")));
+        assertFalse(GzipInput.isCompressed(dir.resolve("gz.txt")));
+    }
+
+    private Path compress(byte[] bytes, String name) throws IOException {
+        Path file = dir.resolve(name);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    private static byte[] decompress(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GzipInput.forEachChunk(file, chunk -> bytes.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining()));
+        return bytes.toByteArray();
+    }
+
+    // text-like bytes, which compress as a book does
+    private static byte[] bytes(int size) {
+        byte[] bytes = new byte[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++)
+            bytes[i] = (byte) (random.nextInt(8) == 0 ? ' ' : 'a' + random.nextInt(6));
+        return bytes;
+    }
+}
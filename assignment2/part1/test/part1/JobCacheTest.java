@@ -0,0 +1,129 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobCacheTest {
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    public void testStoredOutputIsReplayed() {
+        JobCache cache = new JobCache(dir);
+        BiConsumer<AJob<String, Integer>, Consumer<Pair<String, Integer>>> task = cache.cached(this::execute, "pairs");
+
+        assertEquals(List.of("a=1", "b=2"), run(task, job("ab")));
+        assertEquals(List.of("a=1", "b=2"), run(task, job("ab")));
+        assertEquals(1, executions.get());
+        // another variant, or another key, is executed again
+        assertEquals(List.of("a=1", "b=2"), run(cache.cached(this::execute, "other"), job("ab")));
+        assertEquals(List.of("c=1"), run(task, job("c")));
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    public void testJobsWithoutKeyAreNotStored() throws IOException {
+        BiConsumer<AJob<String, Integer>, Consumer<Pair<String, Integer>>> task = new JobCache(dir).cached(this::execute, "pairs");
+        run(task, job("ab", null));
+        run(task, job("ab", null));
+
+        assertEquals(2, executions.get());
+        assertEquals(0, entries());
+    }
+
+    @Test
+    public void testFailedJobIsNotStored() throws IOException {
+        BiConsumer<AJob<String, Integer>, Consumer<Pair<String, Integer>>> task = new JobCache(dir).cached((job, sink) -> {
+            execute(job, sink);
+            throw new IllegalStateException("job");
+        }, "pairs");
+
+        assertThrows(IllegalStateException.class, () -> run(task, job("ab")));
+        assertEquals(0, entries());
+    }
+
+    @Test
+    public void testJobSkippingItsInputIsNotStored() throws IOException {
+        BiConsumer<AJob<String, Integer>, Consumer<Pair<String, Integer>>> task = new JobCache(dir).cached((job, sink) -> {
+            execute(job, sink);
+            JobCache.inputSkipped();
+        }, "pairs");
+
+        assertEquals(List.of("a=1", "b=2"), run(task, job("ab")));
+        assertEquals(List.of("a=1", "b=2"), run(task, job("ab")));
+        assertEquals(2, executions.get());
+        assertEquals(0, entries());
+        // the next execution on the same thread is stored again
+        run(new JobCache(dir).cached(this::execute, "pairs"), job("ab"));
+        assertEquals(1, entries());
+    }
+
+    @Test
+    public void testPruneRemovesTheUnusedEntries() throws IOException {
+        JobCache cache = new JobCache(dir);
+        BiConsumer<AJob<String, Integer>, Consumer<Pair<String, Integer>>> task = cache.cached(this::execute, "pairs");
+        run(task, job("ab"));
+        run(task, job("c"));
+        cache.prune();
+        run(task, job("ab"));
+        cache.prune();
+
+        assertEquals(1, entries());
+        assertEquals(List.of("a=1", "b=2"), run(task, job("ab")));
+        assertEquals(2, executions.get());
+    }
+
+    private void execute(AJob<String, Integer> job, Consumer<Pair<String, Integer>> sink) {
+        executions.incrementAndGet();
+        job.execute(sink);
+    }
+
+    private static List<String> run(BiConsumer<AJob<String, Integer>, Consumer<Pair<String, Integer>>> task, AJob<String, Integer> job) {
+        List<String> output = new ArrayList<>();
+        task.accept(job, pair -> output.add(pair.getKey() + "=" + pair.getValue()));
+        return output;
+    }
+
+    private long entries() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private static AJob<String, Integer> job(String letters) {
+        return job(letters, "letters " + letters);
+    }
+
+    // a pair (letter, position) for every letter
+    private static AJob<String, Integer> job(String letters, String cacheKey) {
+        return new AJob<>() {
+            @Override
+            public Stream<Pair<String, Integer>> execute() {
+                return letters.chars().mapToObj(letter -> new Pair<>(String.valueOf((char) letter), letters.indexOf(letter) + 1))
+                        .collect(Collectors.toList()).stream();
+            }
+
+            @Override
+            public String cacheKey() {
+                return cacheKey;
+            }
+        };
+    }
+}
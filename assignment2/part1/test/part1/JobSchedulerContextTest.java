@@ -0,0 +1,399 @@
+package part1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobSchedulerContextTest {
+    // small splits, so that every file is read by several jobs
+    private static final long SPLIT_SIZE = 4096;
+
+    @TempDir
+    Path dir;
+    private Path books;
+    private Path out;
+
+    // three files of random words from few letters, so that many words are anagrams, one of them compressed
+    @BeforeEach
+    public void writeBooks() throws IOException {
+        books = Files.createDirectories(dir.resolve("books"));
+        out = dir.resolve("out.txt");
+        Random random = new Random(42);
+        for (int file = 0; file < 3; file++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 6000; i++) {
+                char[] letters = new char[1 + random.nextInt(7)];
+                for (int j = 0; j < letters.length; j++)
+                    letters[j] = "aeilnorsT".charAt(random.nextInt(9));
+                text.append(letters).append(i % 12 == 11 ? ".\n" : " ");
+            }
+            if (file == 0) {
+                try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(
+                        Files.newOutputStream(books.resolve("book0.txt.gz"))), StandardCharsets.UTF_8)) {
+                    writer.write(text.toString());
+                }
+            } else {
+                Files.writeString(books.resolve("book" + file + ".txt"), text, StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    @Test
+    public void testEveryExecutionCountsTheSameClasses() throws IOException {
+        List<String> expected = sorted(anagrams(strategy -> { }, context -> { }));
+        Map<String, Consumer<JobSchedulerContext<String, String>>> executions = new LinkedHashMap<>();
+        executions.put("parallel", context -> context.setParallelism(4));
+        executions.put("partitions", context -> {
+            context.setParallelism(4);
+            context.setPartitions(3);
+        });
+        executions.put("sequential spilled", context -> context.setMemoryBudget(100, Comparator.naturalOrder()));
+        executions.put("partitions spilled", context -> {
+            context.setParallelism(4);
+            context.setPartitions(3);
+            context.setMemoryBudget(100, Comparator.naturalOrder());
+        });
+        executions.put("codecs", context -> {
+            context.setParallelism(4);
+            context.setPartitions(3);
+            context.setCodecs(Codec.STRING, Codec.STRING);
+        });
+        executions.put("compact key maps", context -> {
+            context.setParallelism(4);
+            context.setCompactKeyMaps(true);
+        });
+        executions.put("pipelined", context -> context.setPipeline(2, 2, 4));
+        executions.put("longest first", context -> {
+            context.setParallelism(4);
+            context.setDispatchPolicy(DispatchPolicy.LONGEST_FIRST);
+        });
+
+        assertFalse(expected.isEmpty());
+        for (Map.Entry<String, Consumer<JobSchedulerContext<String, String>>> execution : executions.entrySet())
+            assertEquals(expected, sorted(anagrams(strategy -> { }, execution.getValue())), execution.getKey());
+    }
+
+    @Test
+    public void testSpilledRunsAreDeleted() throws IOException {
+        List<Path> before = spilledRuns();
+        anagrams(strategy -> { }, context -> context.setMemoryBudget(10, Comparator.naturalOrder()));
+
+        assertEquals(before, spilledRuns());
+    }
+
+    @Test
+    public void testSortedOutputIsSortedByKey() throws IOException {
+        List<String> expected = anagrams(strategy -> { }, context -> { });
+        expected.sort(Comparator.comparing(JobSchedulerContextTest::keyOf));
+        for (int partitions : new int[]{1, 4}) {
+            List<String> sorted = anagrams(strategy -> strategy.setSortedByKey(true), context -> {
+                context.setParallelism(4);
+                context.setPartitions(partitions);
+            });
+            assertEquals(expected, sorted, partitions + " partitions");
+        }
+        assertEquals(expected, anagrams(strategy -> strategy.setSortedByKey(true), context -> context.setPipeline(2, 2, 4)), "pipelined");
+    }
+
+    @Test
+    public void testPartitionedOutputWritesAPartPerPartition() throws IOException {
+        List<String> expected = sorted(anagrams(strategy -> { }, context -> { }));
+        Path parts = dir.resolve("parts");
+        List<String> joined = anagrams(strategy -> strategy.setPartitionedOutput(parts.toString(), true), context -> {
+            context.setParallelism(4);
+            context.setPartitions(3);
+        });
+
+        assertEquals(expected, sorted(joined));
+        List<String> partLines = new ArrayList<>();
+        for (int p = 0; p < 3; p++)
+            partLines.addAll(Files.readAllLines(PartitionedOutput.partFile(parts, p), StandardCharsets.UTF_8));
+        assertEquals(expected, sorted(partLines));
+        assertFalse(Files.exists(PartitionedOutput.partFile(parts, 3)));
+    }
+
+    @Test
+    public void testCachedJobsAreReplayed() throws IOException {
+        List<String> expected = sorted(anagrams(strategy -> { }, context -> { }));
+        Path cache = dir.resolve("cache");
+        AtomicInteger executions = new AtomicInteger();
+        CountAnagramsStrategy strategy = counting(executions, null);
+
+        assertEquals(expected, sorted(cached(strategy, cache)));
+        int jobs = executions.getAndSet(0);
+        assertTrue(jobs > 3);
+        assertEquals(expected, sorted(cached(strategy, cache)));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    public void testJobsSkippingTheirInputAreNotCached() throws IOException {
+        byte[] compressed = Files.readAllBytes(books.resolve("book0.txt.gz"));
+        Files.write(books.resolve("truncated.txt.gz"), Arrays.copyOf(compressed, compressed.length / 2));
+        Path cache = dir.resolve("cache");
+        AtomicInteger executions = new AtomicInteger();
+        CountAnagramsStrategy strategy = counting(executions, null);
+
+        List<String> first = cached(strategy, cache);
+        executions.set(0);
+        List<String> second = cached(strategy, cache);
+
+        assertEquals(sorted(first), sorted(second));
+        // only the job of the truncated file runs again
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void testFailingJobFailsTheRun() {
+        CountAnagramsStrategy strategy = failing(job -> true, 0);
+        List<Consumer<JobSchedulerContext<String, String>>> executions = List.of(
+                context -> { },
+                context -> context.setParallelism(4),
+                context -> {
+                    context.setParallelism(4);
+                    context.setPartitions(3);
+                },
+                context -> context.setPipeline(2, 2, 4));
+        for (Consumer<JobSchedulerContext<String, String>> execution : executions) {
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                try (JobSchedulerContext<String, String> context = new JobSchedulerContext<>(strategy)) {
+                    execution.accept(context);
+                    assertThrows(RuntimeException.class, context::runScheduling);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testSpeculativeCopyCountsItsRecordsOnce() throws IOException, InterruptedException {
+        List<String> expected = sorted(anagrams(strategy -> { }, context -> { }));
+        long records;
+        try (JobSchedulerContext<String, String> context = new JobSchedulerContext<>(strategy())) {
+            context.setParallelism(4);
+            context.runScheduling();
+            records = context.getMetrics().getIntermediateRecords();
+        }
+        CountDownLatch slowDone = new CountDownLatch(1);
+        CountAnagramsStrategy strategy = counting(new AtomicInteger(), slowDone);
+        try (JobSchedulerContext<String, String> context = new JobSchedulerContext<>(strategy)) {
+            context.setParallelism(4);
+            context.setSpeculation(2);
+            context.runScheduling();
+            assertTrue(slowDone.await(10, TimeUnit.SECONDS));
+
+            assertEquals(expected, sorted(Files.readAllLines(out, StandardCharsets.UTF_8)));
+            assertEquals(1, context.getMetrics().getSpeculativeCopies());
+            assertEquals(records, context.getMetrics().getIntermediateRecords());
+        }
+    }
+
+    @Test
+    public void testSpeculativeCopyReplacesAFailingJob() throws IOException {
+        List<String> expected = sorted(anagrams(strategy -> { }, context -> { }));
+        AtomicBoolean first = new AtomicBoolean(true);
+        CountAnagramsStrategy strategy = failing(job -> isSlow(job) && first.getAndSet(false), 1000);
+        try (JobSchedulerContext<String, String> context = new JobSchedulerContext<>(strategy)) {
+            context.setParallelism(4);
+            context.setSpeculation(2);
+            context.runScheduling();
+        }
+
+        assertEquals(expected, sorted(Files.readAllLines(out, StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testJobFailsWhenBothCopiesFail() {
+        CountAnagramsStrategy strategy = failing(JobSchedulerContextTest::isSlow, 1000);
+        try (JobSchedulerContext<String, String> context = new JobSchedulerContext<>(strategy)) {
+            context.setParallelism(4);
+            context.setSpeculation(2);
+
+            assertThrows(IllegalStateException.class, context::runScheduling);
+        }
+    }
+
+    @Test
+    public void testClusterCountsTheSameClasses() throws IOException {
+        List<String> expected = sorted(anagrams(strategy -> { }, context -> { }));
+        try (Cluster cluster = Cluster.startLocal(2)) {
+            assertEquals(expected, sorted(anagrams(strategy -> { }, context -> context.setCluster(cluster))));
+            assertEquals(expected, sorted(anagrams(strategy -> strategy.setSortedByKey(true), context -> context.setCluster(cluster))));
+        }
+    }
+
+    @Test
+    public void testWordCountCountsEveryWord() throws IOException {
+        Map<String, Long> counts = new HashMap<>();
+        try (Stream<Path> files = Files.list(books)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Consumer<String> count = word -> counts.merge(word.toLowerCase(Locale.ROOT), 1L, Long::sum);
+                if (GzipInput.isCompressed(file))
+                    WordTokenizer.forEachCompressedWord(file, 1, count);
+                else
+                    WordTokenizer.forEachWord(file, 1, count);
+            }
+        }
+        List<String> expected = counts.entrySet().stream()
+                .map(count -> count.getKey() + ", " + count.getValue())
+                .sorted()
+                .collect(Collectors.toList());
+
+        WordCountStrategy strategy = new WordCountStrategy(books.toString(), out.toString());
+        assertEquals(expected, sorted(output(strategy, context -> { })));
+        assertEquals(expected, sorted(output(strategy, context -> {
+            context.setParallelism(4);
+            context.setPartitions(3);
+        })));
+        assertEquals(expected, sorted(output(strategy, context -> context.setPipeline(2, 2, 4))));
+    }
+
+    @Test
+    public void testCachedSketchesFollowTheHeavyHitters() throws IOException {
+        Path cache = dir.resolve("cache");
+        ApproximateCountAnagramsStrategy strategy = new ApproximateCountAnagramsStrategy(books.toString(), out.toString());
+        strategy.setHeavyHitters(5);
+        List<String> five = output(strategy, context -> context.setCacheDirectory(cache));
+        strategy.setHeavyHitters(25);
+        List<String> cached = output(strategy, context -> context.setCacheDirectory(cache));
+        List<String> uncached = output(strategy, context -> { });
+
+        assertEquals(1 + 5, five.size());
+        assertEquals(uncached, cached);
+    }
+
+    private CountAnagramsStrategy strategy() {
+        CountAnagramsStrategy strategy = new CountAnagramsStrategy(books.toString(), out.toString());
+        strategy.setSplitSize(SPLIT_SIZE);
+        return strategy;
+    }
+
+    // the first split of book1 is the one slowed down or failed by the tests of the speculation
+    private static boolean isSlow(ACiaoJob<?> job) {
+        return job.filePath.endsWith("book1.txt") && job.start == 0;
+    }
+
+    // counts the executions of the jobs; with a latch, the first execution of the slow job waits a second
+    // before running and then counts the latch down
+    private CountAnagramsStrategy counting(AtomicInteger executions, CountDownLatch slowDone) {
+        AtomicBoolean first = new AtomicBoolean(true);
+        CountAnagramsStrategy strategy = new CountAnagramsStrategy(books.toString(), out.toString()) {
+            @Override
+            protected AJob<String, String> newJob(String filePath, long start, long end) {
+                return new CiaoJob(filePath, start, end) {
+                    @Override
+                    public void execute(Consumer<? super Pair<String, String>> sink) {
+                        executions.incrementAndGet();
+                        boolean slow = slowDone != null && isSlow(this) && first.getAndSet(false);
+                        if (slow)
+                            sleep(1000);
+                        super.execute(sink);
+                        if (slow)
+                            slowDone.countDown();
+                    }
+                };
+            }
+        };
+        strategy.setSplitSize(SPLIT_SIZE);
+        return strategy;
+    }
+
+    // the executions of the jobs accepted by the filter wait the given time and then fail
+    private CountAnagramsStrategy failing(Predicate<ACiaoJob<?>> fails, long millis) {
+        CountAnagramsStrategy strategy = new CountAnagramsStrategy(books.toString(), out.toString()) {
+            @Override
+            protected AJob<String, String> newJob(String filePath, long start, long end) {
+                return new CiaoJob(filePath, start, end) {
+                    @Override
+                    public void execute(Consumer<? super Pair<String, String>> sink) {
+                        if (fails.test(this)) {
+                            sleep(millis);
+                            throw new IllegalStateException("Failed " + this);
+                        }
+                        super.execute(sink);
+                    }
+                };
+            }
+        };
+        strategy.setSplitSize(SPLIT_SIZE);
+        return strategy;
+    }
+
+    private List<String> anagrams(Consumer<CountAnagramsStrategy> strategySettings,
+                                  Consumer<JobSchedulerContext<String, String>> settings) throws IOException {
+        CountAnagramsStrategy strategy = strategy();
+        strategySettings.accept(strategy);
+        return output(strategy, settings);
+    }
+
+    private List<String> cached(CountAnagramsStrategy strategy, Path cache) throws IOException {
+        return output(strategy, context -> {
+            context.setParallelism(4);
+            context.setCacheDirectory(cache);
+        });
+    }
+
+    // the lines written by a scheduling of the strategy with the given settings
+    private <K, V> List<String> output(JobSchedulerStrategy<K, V> strategy, Consumer<JobSchedulerContext<K, V>> settings) throws IOException {
+        Files.deleteIfExists(out);
+        try (JobSchedulerContext<K, V> context = new JobSchedulerContext<>(strategy)) {
+            settings.accept(context);
+            context.runScheduling();
+        }
+        return Files.readAllLines(out, StandardCharsets.UTF_8);
+    }
+
+    private static List<Path> spilledRuns() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("spill")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static String keyOf(String line) {
+        return line.substring(0, line.lastIndexOf(", "));
+    }
+
+    private static List<String> sorted(List<String> lines) {
+        List<String> sorted = new ArrayList<>(lines);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
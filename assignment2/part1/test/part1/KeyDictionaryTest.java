@@ -0,0 +1,107 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyDictionaryTest {
+
+    // a key whose hash is shared by many others, so that the keys collide and are probed past each other
+    private record Colliding(int value) {
+        @Override
+        public int hashCode() {
+            return value % 64;
+        }
+    }
+
+    @Test
+    public void testSameContentOfAHashMap() {
+        KeyDictionary<Object, Integer> dictionary = new KeyDictionary<>();
+        Map<Object, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // a key range that grows, so that the table keeps resizing while keys are also removed
+            Object key = key(random, 1 + i / 20);
+            Integer value = random.nextInt(10);
+            switch (random.nextInt(5)) {
+                case 0:
+                    assertEquals(expected.put(key, value), dictionary.put(key, value), key.toString());
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), dictionary.remove(key), key.toString());
+                    break;
+                case 2:
+                    // a merge to 0 removes the key
+                    assertEquals(expected.merge(key, value, KeyDictionaryTest::sumOrRemove),
+                            dictionary.merge(key, value, KeyDictionaryTest::sumOrRemove), key.toString());
+                    break;
+                case 3:
+                    assertEquals(expected.computeIfAbsent(key, absent -> value), dictionary.computeIfAbsent(key, absent -> value), key.toString());
+                    break;
+                default:
+                    assertEquals(expected.get(key), dictionary.get(key), key.toString());
+                    assertEquals(expected.containsKey(key), dictionary.containsKey(key), key.toString());
+            }
+            assertEquals(expected.size(), dictionary.size());
+        }
+        assertEquals(expected, dictionary);
+        assertEquals(expected, new HashMap<>(dictionary));
+    }
+
+    @Test
+    public void testRemovingEveryKeyEmptiesTheDictionary() {
+        KeyDictionary<Object, Integer> dictionary = new KeyDictionary<>();
+        for (int i = 0; i < 10_000; i++)
+            dictionary.put(i % 2 == 0 ? new Colliding(i) : i, i);
+        for (int i = 0; i < 10_000; i += 2)
+            assertEquals(i, dictionary.remove(new Colliding(i)));
+
+        assertEquals(5_000, dictionary.size());
+        for (int i = 0; i < 10_000; i++)
+            assertEquals(i % 2 == 0 ? null : i, dictionary.get(i % 2 == 0 ? new Colliding(i) : i), "key " + i);
+        for (int i = 1; i < 10_000; i += 2)
+            assertEquals(i, dictionary.remove(i));
+        assertTrue(dictionary.isEmpty());
+        assertNull(dictionary.remove(1));
+        dictionary.put(new Colliding(3), 3);
+        assertEquals(Map.of(new Colliding(3), 3), dictionary);
+    }
+
+    @Test
+    public void testMergeToNullRemovesTheKey() {
+        KeyDictionary<String, Integer> dictionary = new KeyDictionary<>();
+        dictionary.put("listen", 1);
+        dictionary.put("silent", 2);
+
+        assertNull(dictionary.merge("listen", 1, (left, right) -> null));
+        assertFalse(dictionary.containsKey("listen"));
+        assertEquals(Map.of("silent", 2), dictionary);
+        assertEquals(4, dictionary.merge("silent", 2, Integer::sum));
+        assertEquals(5, dictionary.merge("enlist", 5, Integer::sum));
+    }
+
+    @Test
+    public void testEntriesSetTheirValue() {
+        KeyDictionary<String, Integer> dictionary = new KeyDictionary<>();
+        dictionary.put("listen", 1);
+        dictionary.put("silent", 2);
+        for (Map.Entry<String, Integer> entry : dictionary.entrySet())
+            entry.setValue(entry.getValue() * 10);
+
+        assertEquals(Map.of("listen", 10, "silent", 20), dictionary);
+    }
+
+    private static Object key(Random random, int range) {
+        int value = random.nextInt(range);
+        return random.nextBoolean() ? new Colliding(value) : "key" + value;
+    }
+
+    private static Integer sumOrRemove(Integer left, Integer right) {
+        int sum = (left + right) % 10;
+        return sum == 0 ? null : sum;
+    }
+}
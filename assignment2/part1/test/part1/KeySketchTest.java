@@ -0,0 +1,116 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeySketchTest {
+    private static final double EPSILON = 1e-3;
+    private static final double DELTA = 0.01;
+    private static final double DISTINCT_ERROR = 0.02;
+
+    @Test
+    public void testCountMinNeverUnderestimates() {
+        CountMinSketch sketch = new CountMinSketch(EPSILON, DELTA);
+        Map<Integer, Long> counts = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = skewed(random);
+            sketch.add(key, 1);
+            counts.merge(key, 1L, Long::sum);
+        }
+
+        assertEquals(100_000, sketch.total());
+        int overestimated = 0;
+        for (Map.Entry<Integer, Long> count : counts.entrySet()) {
+            long estimate = sketch.estimate(count.getKey());
+            assertTrue(estimate >= count.getValue(), "key " + count.getKey());
+            if (estimate > count.getValue() + EPSILON * sketch.total())
+                overestimated++;
+        }
+        // at most delta of the keys beyond the bound, with some slack
+        assertTrue(overestimated <= 2 * DELTA * counts.size(), overestimated + " keys overestimated");
+    }
+
+    @Test
+    public void testHyperLogLogEstimatesTheDistinctValues() {
+        for (int distinct : new int[]{10, 1000, 100_000}) {
+            HyperLogLog sketch = new HyperLogLog(DISTINCT_ERROR);
+            for (int repeat = 0; repeat < 3; repeat++)
+                for (int i = 0; i < distinct; i++)
+                    sketch.add("word" + i);
+            assertEquals(distinct, sketch.estimate(), 4 * DISTINCT_ERROR * distinct + 1, distinct + " values");
+        }
+    }
+
+    @Test
+    public void testMergedSketchesEqualASingleSketch() {
+        HyperLogLog left = new HyperLogLog(DISTINCT_ERROR);
+        HyperLogLog right = new HyperLogLog(DISTINCT_ERROR);
+        HyperLogLog all = new HyperLogLog(DISTINCT_ERROR);
+        CountMinSketch leftCounts = new CountMinSketch(EPSILON, DELTA);
+        CountMinSketch rightCounts = new CountMinSketch(EPSILON, DELTA);
+        CountMinSketch allCounts = new CountMinSketch(EPSILON, DELTA);
+        for (int i = 0; i < 20_000; i++) {
+            (i % 3 == 0 ? left : right).add("word" + i % 7000);
+            all.add("word" + i % 7000);
+            (i % 3 == 0 ? leftCounts : rightCounts).add(i % 500, 1);
+            allCounts.add(i % 500, 1);
+        }
+        left.merge(right);
+        leftCounts.merge(rightCounts);
+
+        assertEquals(all.estimate(), left.estimate());
+        assertEquals(allCounts.total(), leftCounts.total());
+        for (int key = 0; key < 500; key++)
+            assertEquals(allCounts.estimate(key), leftCounts.estimate(key));
+    }
+
+    @Test
+    public void testHeavyHittersAreTheLargestKeys() {
+        Map<Integer, Long> counts = new HashMap<>();
+        Map<Integer, Set<String>> values = new HashMap<>();
+        List<KeySketch<Integer>> parts = List.of(sketch(), sketch(), sketch(), sketch());
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = skewed(random);
+            String value = "v" + random.nextInt(1 + key % 50);
+            parts.get(i % parts.size()).add(key, value);
+            counts.merge(key, 1L, Long::sum);
+            values.computeIfAbsent(key, k -> new HashSet<>()).add(value);
+        }
+        KeySketch<Integer> merged = parts.stream().reduce(sketch(), KeySketch::merge);
+
+        assertEquals(100_000, merged.totalCount());
+        assertEquals(counts.size(), merged.estimateDistinctKeys(), 4 * DISTINCT_ERROR * counts.size() + 1);
+        List<Integer> largest = counts.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .limit(3)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        List<KeySketch.Estimate<Integer>> heavyHitters = merged.heavyHitters();
+        assertEquals(10, heavyHitters.size());
+        assertEquals(largest, heavyHitters.subList(0, 3).stream().map(KeySketch.Estimate::key).collect(Collectors.toList()));
+        for (KeySketch.Estimate<Integer> estimate : heavyHitters) {
+            assertTrue(estimate.count() >= counts.get(estimate.key()), "key " + estimate.key());
+            assertEquals(values.get(estimate.key()).size(), estimate.distinctValues(), 4 * DISTINCT_ERROR * values.get(estimate.key()).size() + 1);
+        }
+    }
+
+    private static KeySketch<Integer> sketch() {
+        return new KeySketch<>(EPSILON, DELTA, DISTINCT_ERROR, 10);
+    }
+
+    // few keys with most of the counts, as the largest anagram classes of a text
+    private static int skewed(Random random) {
+        return (int) Math.floor(Math.pow(random.nextDouble(), 4) * 20_000);
+    }
+}
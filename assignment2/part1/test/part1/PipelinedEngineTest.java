@@ -0,0 +1,137 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+import part1.aux_files.AJob;
+import part1.aux_files.Pair;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PipelinedEngineTest {
+    private static final int JOBS = 50;
+    private static final int PAIRS_PER_JOB = 5000;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final BiConsumer<AJob<Integer, Integer>, Consumer<Pair<Integer, Integer>>> compute = (job, sink) -> job.execute(sink);
+    private final Comparator<Pair<Integer, Integer>> byKey = Comparator.comparing(Pair::getKey);
+
+    @Test
+    public void testEveryKeyIsReduced() {
+        Map<Integer, Integer> expected = new HashMap<>();
+        jobs().flatMap(AJob::execute).forEach(pair -> expected.merge(pair.getKey(), pair.getValue(), Integer::sum));
+
+        assertEquals(expected, toMap(engine().run(jobs(), compute, Collectors.summingInt(value -> value), HashMap::new, null)));
+        List<Pair<Integer, Integer>> sorted = engine().run(jobs(), compute, Collectors.summingInt(value -> value), HashMap::new, byKey)
+                .collect(Collectors.toList());
+        assertEquals(expected, toMap(sorted.stream()));
+        for (int i = 1; i < sorted.size(); i++)
+            assertTrue(sorted.get(i - 1).getKey() < sorted.get(i).getKey());
+    }
+
+    @Test
+    public void testFailingReducerFailsTheRun() {
+        for (Comparator<Pair<Integer, Integer>> order : Arrays.asList(null, byKey)) {
+            assertFailure(IllegalStateException.class, () ->
+                    engine().run(jobs(), compute, failing(new IllegalStateException("reducer")), HashMap::new, order).count());
+            assertFailure(InternalError.class, () ->
+                    engine().run(jobs(), compute, failing(new InternalError("reducer")), HashMap::new, order).count());
+        }
+    }
+
+    @Test
+    public void testFailingJobFailsTheRun() {
+        BiConsumer<AJob<Integer, Integer>, Consumer<Pair<Integer, Integer>>> failingCompute = (job, sink) -> {
+            if (job.toString().equals("7"))
+                throw new IllegalStateException("job");
+            job.execute(sink);
+        };
+
+        assertFailure(IllegalStateException.class, () ->
+                engine().run(jobs(), failingCompute, Collectors.summingInt(value -> value), HashMap::new, null).count());
+        assertFailure(IllegalStateException.class, () ->
+                engine().run(jobs(), failingCompute, Collectors.summingInt(value -> value), HashMap::new, byKey).count());
+    }
+
+    @Test
+    public void testFailingEmitFailsTheRun() {
+        Stream<AJob<Integer, Integer>> jobs = jobs().peek(job -> {
+            if (job.toString().equals("7"))
+                throw new IllegalStateException("emit");
+        });
+
+        assertFailure(IllegalStateException.class, () ->
+                engine().run(jobs, compute, Collectors.summingInt(value -> value), HashMap::new, null).count());
+    }
+
+    @Test
+    public void testClosingTheOutputStopsTheStages() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (Stream<Pair<Integer, Integer>> reductions = engine().run(jobs(), compute, Collectors.summingInt(value -> value), HashMap::new, null)) {
+                assertTrue(reductions.iterator().hasNext());
+            }
+            awaitNoStages();
+        });
+    }
+
+    // the failure is thrown by the run or its stream, without waiting forever, and no stage is left running
+    private static void assertFailure(Class<? extends Throwable> expected, Runnable run) {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            assertThrows(expected, run::run);
+            awaitNoStages();
+        });
+    }
+
+    private static void awaitNoStages() throws InterruptedException {
+        while (Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().startsWith("pipeline-")))
+            Thread.sleep(10);
+    }
+
+    private static PipelinedEngine<Integer, Integer> engine() {
+        // small queues, so that the stages wait for each other
+        return new PipelinedEngine<>(2, 3, 4, 2);
+    }
+
+    private static Collector<Integer, ?, Integer> failing(Throwable failure) {
+        return Collectors.reducing(0, (left, right) -> {
+            if (failure instanceof Error)
+                throw (Error) failure;
+            throw (RuntimeException) failure;
+        });
+    }
+
+    private static Stream<AJob<Integer, Integer>> jobs() {
+        return IntStream.range(0, JOBS).mapToObj(PipelinedEngineTest::job);
+    }
+
+    private static AJob<Integer, Integer> job(int number) {
+        return new AJob<>() {
+            @Override
+            public Stream<Pair<Integer, Integer>> execute() {
+                return IntStream.range(0, PAIRS_PER_JOB).mapToObj(i -> new Pair<>((i * 31 + number) % 3000, 1));
+            }
+
+            @Override
+            public String toString() {
+                return String.valueOf(number);
+            }
+        };
+    }
+
+    private static Map<Integer, Integer> toMap(Stream<Pair<Integer, Integer>> reductions) {
+        Map<Integer, Integer> map = new HashMap<>();
+        reductions.forEach(pair -> assertNull(map.put(pair.getKey(), pair.getValue()), "key " + pair.getKey()));
+        return map;
+    }
+}
@@ -0,0 +1,90 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+import part1.aux_files.Pair;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpillingGrouperTest {
+    // counts the pairs of every key
+    private final Function<Stream<Pair<String, Integer>>, Stream<Pair<String, Integer>>> counting = pairs ->
+            pairs.collect(Collectors.groupingBy(Pair::getKey, Collectors.summingInt(Pair::getValue)))
+                    .entrySet().stream().map(count -> new Pair<>(count.getKey(), count.getValue()));
+
+    @Test
+    public void testSpilledGroupsEqualTheInMemoryOnes() throws IOException {
+        List<Path> before = spilledRuns();
+        Map<String, Integer> expected = counts(new SpillingGrouper<String, Pair<String, Integer>>(Long.MAX_VALUE, String::compareTo)
+                .group(pairs(), counting));
+
+        for (long budget : new long[]{50, 1000, 9999, 10_000}) {
+            Map<String, Integer> spilled = counts(new SpillingGrouper<String, Pair<String, Integer>>(budget, String::compareTo)
+                    .group(pairs(), counting));
+            assertEquals(expected, spilled, "budget " + budget);
+        }
+        assertEquals(before, spilledRuns());
+    }
+
+    @Test
+    public void testSpilledGroupsAreInKeyOrder() {
+        List<String> keys = new SpillingGrouper<String, Pair<String, Integer>>(100, String::compareTo)
+                .group(pairs(), counting)
+                .map(Pair::getKey)
+                .collect(Collectors.toList());
+
+        assertEquals(keys.stream().sorted().collect(Collectors.toList()), keys);
+    }
+
+    @Test
+    public void testRunsAreDeletedWhenTheInputFails() throws IOException {
+        List<Path> before = spilledRuns();
+        Stream<Pair<String, Integer>> failing = pairs().peek(pair -> {
+            if (pair.getValue() == 5000)
+                throw new IllegalStateException("input");
+        });
+
+        assertThrows(IllegalStateException.class, () -> new SpillingGrouper<String, Pair<String, Integer>>(100, String::compareTo)
+                .group(failing, counting));
+        assertEquals(before, spilledRuns());
+    }
+
+    @Test
+    public void testRunsAreDeletedWhenTheGroupsAreClosed() throws IOException {
+        List<Path> before = spilledRuns();
+        try (Stream<Pair<String, Integer>> groups = new SpillingGrouper<String, Pair<String, Integer>>(100, String::compareTo)
+                .group(pairs(), counting)) {
+            assertTrue(groups.iterator().hasNext());
+            assertNotEquals(before, spilledRuns());
+        }
+
+        assertEquals(before, spilledRuns());
+    }
+
+    // 10000 pairs of 300 keys, the value is the position of the pair
+    private static Stream<Pair<String, Integer>> pairs() {
+        return IntStream.range(0, 10_000).mapToObj(i -> new Pair<>("key" + (i * 7919) % 300, i));
+    }
+
+    private static Map<String, Integer> counts(Stream<Pair<String, Integer>> groups) {
+        Map<String, Integer> counts = new TreeMap<>();
+        groups.forEach(group -> assertNull(counts.put(group.getKey(), group.getValue()), group.getKey()));
+        return counts;
+    }
+
+    private static List<Path> spilledRuns() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("spill")).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringCodecTest {
+    private static final List<String> VALUES = List.of("", "a", "listen", "citt\u00e0", "perch\u00e9", "\u00e8",
+            "\u65e5\u672c\u8a9e", "\ud83d\ude00 emoji", "x".repeat(63), "x".repeat(64), "x".repeat(200), "\u00e0".repeat(5000));
+
+    @Test
+    public void testValuesAreDecodedAsEncoded() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (String value : VALUES)
+            Codec.STRING.encode(value, buffer);
+        buffer.flip();
+        List<String> decoded = new ArrayList<>();
+        while (buffer.hasRemaining())
+            decoded.add(Codec.STRING.decode(buffer));
+
+        assertEquals(VALUES, decoded);
+    }
+
+    @Test
+    public void testValueTooLargeOverflows() {
+        for (String value : List.of("listen", "citt\u00e0")) {
+            ByteBuffer buffer = ByteBuffer.allocate(value.length());
+            assertThrows(BufferOverflowException.class, () -> Codec.STRING.encode(value, buffer), value);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package part1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WordTokenizerTest {
+    // words at both ends, runs of delimiters, multibyte UTF-8 characters inside and between words, short words
+    private static final String TEXT = "Nel mezzo del cammin di nostra vita\nmi ritrovai per una selva oscura,\r\n"
+            + "ch\u00e9 la diritta via era smarrita.  Ahi quanto a dir qual era \u00e8 cosa dura--esta selva selvaggia\t"
+            + "e aspra e forte che nel pensier rinova la paura! citt\u00e0 perch\u00e9 1984abc abc1984 x yy zzz wwww Fine";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testSameWordsOfAScanner() throws IOException {
+        Path file = write(TEXT);
+        List<String> expected = new ArrayList<>();
+        try (Scanner scanner = new Scanner(file, StandardCharsets.UTF_8)) {
+            scanner.useDelimiter("\\P{Alpha}+");
+            scanner.forEachRemaining(expected::add);
+        }
+
+        assertEquals(expected, words(file, 0, Long.MAX_VALUE, 1));
+    }
+
+    @Test
+    public void testSplitsFindEveryWordOnce() throws IOException {
+        Path file = write(TEXT);
+        List<String> unsplit = sorted(words(file, 0, Long.MAX_VALUE, 4));
+        long size = Files.size(file);
+        for (long splitSize : new long[]{1, 2, 7, 64L << 20}) {
+            List<String> split = new ArrayList<>();
+            for (long start = 0; start < size; start += splitSize)
+                split.addAll(words(file, start, start + splitSize >= size ? Long.MAX_VALUE : start + splitSize, 4));
+            assertEquals(unsplit, sorted(split), "split size " + splitSize);
+        }
+    }
+
+    @Test
+    public void testReadRangesHoldTheSameWords() throws IOException {
+        Path file = write(TEXT);
+        long size = Files.size(file);
+        for (long splitSize : new long[]{1, 2, 7}) {
+            for (long start = 0; start < size; start += splitSize) {
+                long end = start + splitSize;
+                List<String> read = new ArrayList<>();
+                WordTokenizer tokenizer = new WordTokenizer(4, read::add);
+                tokenizer.feed(WordTokenizer.read(file, start, end));
+                tokenizer.finish();
+                assertEquals(words(file, start, end, 4), read, "range " + start + " " + end);
+            }
+        }
+    }
+
+    @Test
+    public void testWordsAcrossChunks() {
+        byte[] bytes = TEXT.getBytes(StandardCharsets.UTF_8);
+        List<String> whole = new ArrayList<>();
+        WordTokenizer tokenizer = new WordTokenizer(1, whole::add);
+        tokenizer.feed(ByteBuffer.wrap(bytes));
+        tokenizer.finish();
+        for (int chunkSize : new int[]{1, 2, 7}) {
+            List<String> chunked = new ArrayList<>();
+            tokenizer = new WordTokenizer(1, chunked::add);
+            for (int from = 0; from < bytes.length; from += chunkSize)
+                tokenizer.feed(ByteBuffer.wrap(bytes, from, Math.min(chunkSize, bytes.length - from)));
+            tokenizer.finish();
+            assertEquals(whole, chunked, "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    public void testShortWordsAreSkipped() throws IOException {
+        Path file = write("a bb ccc dddd eeeee");
+
+        assertEquals(List.of("dddd", "eeeee"), words(file, 0, Long.MAX_VALUE, 4));
+    }
+
+    private Path write(String text) throws IOException {
+        return Files.writeString(dir.resolve("text.txt"), text, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> words(Path file, long start, long end, int minLength) throws IOException {
+        List<String> words = new ArrayList<>();
+        WordTokenizer.forEachWord(file, start, end, minLength, words::add);
+        return words;
+    }
+
+    private static List<String> sorted(List<String> words) {
+        List<String> sorted = new ArrayList<>(words);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}